@@ -0,0 +1,93 @@
+/*
+ * Copyright 2020 Arman Sargsyan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zerobranch.androidremotedebugger.source.managers;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.os.Build;
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class SearchPlannerTest {
+    private static final String TABLE_NAME = "users";
+    private static final int LIMIT = 100;
+    // SQLite 3.9, the first to report the collation of an index
+    private static final int INDEX_COLLATION_SDK = 24;
+
+    private SQLiteDatabase database;
+    private SchemaCache schemaCache;
+    private SearchPlanner searchPlanner;
+
+    @Before
+    public void setUp() {
+        database = SQLiteDatabase.create(null);
+        database.execSQL("CREATE TABLE " + TABLE_NAME + " (email TEXT, name TEXT COLLATE NOCASE, city TEXT)");
+        database.execSQL("CREATE INDEX users_email ON " + TABLE_NAME + " (email)");
+        database.execSQL("CREATE INDEX users_name ON " + TABLE_NAME + " (name)");
+        database.execSQL("CREATE INDEX users_city ON " + TABLE_NAME + " (city COLLATE NOCASE)");
+        database.execSQL("INSERT INTO " + TABLE_NAME + " VALUES ('anna@example.com', 'Anna', 'Berlin')");
+        database.execSQL("INSERT INTO " + TABLE_NAME + " VALUES ('bob@example.com', 'bob', 'berlin')");
+
+        schemaCache = new SchemaCache(database);
+        searchPlanner = new SearchPlanner(database);
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void seeksBinaryIndexByPrefix() {
+        assumeTrue(Build.VERSION.SDK_INT >= INDEX_COLLATION_SDK);
+
+        assertSearch("anna@", SearchResult.STRATEGY_INDEX, 1);
+    }
+
+    // the prefix "Ber" must not seek the NOCASE indexes, it is left to the scan, which finds both spellings
+    @Test
+    public void scansColumnsWithNoCaseIndexes() {
+        assertSearch("Ber", SearchResult.STRATEGY_SCAN, 2);
+    }
+
+    @Test(expected = OperationCanceledException.class)
+    public void cancelledSignalStopsTheSearch() {
+        final CancellationSignal cancellationSignal = new CancellationSignal();
+        cancellationSignal.cancel();
+
+        searchPlanner.search(schemaCache.get(TABLE_NAME), "nothing", LIMIT, cancellationSignal);
+    }
+
+    private void assertSearch(String text, String expectedStrategy, int expectedCount) {
+        final SearchResult result = searchPlanner.search(schemaCache.get(TABLE_NAME), text, LIMIT, null);
+        try {
+            assertEquals(expectedStrategy, result.getStrategy());
+            assertEquals(expectedCount, result.getCursor().getCount());
+        } finally {
+            result.getCursor().close();
+        }
+    }
+}
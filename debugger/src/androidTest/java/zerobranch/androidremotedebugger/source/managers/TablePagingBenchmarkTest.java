@@ -0,0 +1,118 @@
+/*
+ * Copyright 2020 Arman Sargsyan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zerobranch.androidremotedebugger.source.managers;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Loads pages from both ends of a table with millions of rows, as the database page does.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TablePagingBenchmarkTest {
+    private static final String TAG = "TablePagingBenchmark";
+    private static final String DATABASE_NAME = "table_paging_benchmark.db";
+    private static final String TABLE_NAME = "items";
+    private static final int ROW_COUNT = 2000000;
+    private static final int PAGE_SIZE = 100;
+    private static final int RUNS = 5;
+    private static final long TOLERANCE_MS = 5;
+
+    private DatabaseManager databaseManager;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DATABASE_NAME);
+        SQLiteDatabase database = context.openOrCreateDatabase(DATABASE_NAME, Context.MODE_PRIVATE, null);
+        database.execSQL("CREATE TABLE " + TABLE_NAME + " (id INTEGER PRIMARY KEY, name TEXT)");
+        database.execSQL("WITH RECURSIVE numbers(n) AS (SELECT 1 UNION ALL SELECT n + 1 FROM numbers " +
+                "WHERE n < " + ROW_COUNT + ") INSERT INTO " + TABLE_NAME + " SELECT n, 'item ' || n FROM numbers");
+        database.close();
+
+        DatabaseManager.connect(context, DATABASE_NAME);
+        databaseManager = DatabaseManager.getInstance();
+    }
+
+    @After
+    public void tearDown() {
+        databaseManager.dropDatabase(DATABASE_NAME);
+    }
+
+    @Test
+    public void lastPageLoadsAsFastAsFirstPageAndHoldsLastRows() {
+        String pageKey = databaseManager.getPageKey(TABLE_NAME);
+        int lastPage = ROW_COUNT / PAGE_SIZE;
+
+        long firstPageMs = getMedianMs(() ->
+                databaseManager.queryTableDataAfter(TABLE_NAME, pageKey, null, false, PAGE_SIZE));
+        long lastPageMs = getMedianMs(() ->
+                databaseManager.queryTableDataBefore(TABLE_NAME, pageKey, null, PAGE_SIZE));
+        long offsetLastPageMs = getMedianMs(() ->
+                databaseManager.queryTableData(TABLE_NAME, null, lastPage, PAGE_SIZE));
+
+        Log.i(TAG, ROW_COUNT + " rows, median page load: first " + firstPageMs + " ms, last " + lastPageMs +
+                " ms, last by OFFSET " + offsetLastPageMs + " ms");
+
+        assertTrue(lastPageMs <= 3 * firstPageMs + TOLERANCE_MS);
+        assertTrue(lastPageMs < offsetLastPageMs);
+
+        Cursor cursor = databaseManager.queryTableDataBefore(TABLE_NAME, pageKey, null, PAGE_SIZE);
+        try {
+            assertEquals(PAGE_SIZE, cursor.getCount());
+            cursor.moveToLast();
+            assertEquals(ROW_COUNT, cursor.getLong(cursor.getColumnIndex(DatabaseManager.PAGE_KEY_COLUMN)));
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private long getMedianMs(PageQuery query) {
+        long[] durations = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long startTime = System.nanoTime();
+            Cursor cursor = query.run();
+            try {
+                // rows are only read once the cursor fills its window
+                assertEquals(PAGE_SIZE, cursor.getCount());
+            } finally {
+                cursor.close();
+            }
+            durations[i] = (System.nanoTime() - startTime) / 1000000;
+        }
+        Arrays.sort(durations);
+        return durations[RUNS / 2];
+    }
+
+    private interface PageQuery {
+        Cursor run();
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2020 Arman Sargsyan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zerobranch.androidremotedebugger.source.repository;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import zerobranch.androidremotedebugger.source.models.LogModel;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Writes logs while other threads keep searching them, as the dashboard does while the app logs.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ConcurrentSearchWriteTest {
+    private static final String TAG = "ConcurrentSearchWrite";
+    private static final int STORED_LOGS = 100000;
+    private static final int WRITES = 200;
+    private static final int BATCH_SIZE = 50;
+    private static final int READER_COUNT = 2;
+
+    private final AtomicBoolean isSearching = new AtomicBoolean();
+    private final List<Long> searchDurations = Collections.synchronizedList(new ArrayList<>());
+    private File databaseFile;
+    private SQLiteDatabase database;
+    private LogRepository repository;
+    private int logNumber;
+
+    @Before
+    public void setUp() throws IOException {
+        databaseFile = File.createTempFile("concurrent_search", ".db");
+        database = SQLiteDatabase.openDatabase(databaseFile.getPath(), null,
+                SQLiteDatabase.CREATE_IF_NECESSARY | SQLiteDatabase.ENABLE_WRITE_AHEAD_LOGGING);
+        database.execSQL("PRAGMA synchronous = NORMAL");
+
+        repository = new LogRepository(database);
+        repository.createLogsTable(database);
+
+        while (logNumber < STORED_LOGS) {
+            repository.addLogs(nextBatch());
+        }
+    }
+
+    @After
+    public void tearDown() {
+        isSearching.set(false);
+        database.close();
+        SQLiteDatabase.deleteDatabase(databaseFile);
+    }
+
+    @Test
+    public void searchesDoNotHoldUpWrites() throws InterruptedException {
+        long idleP99 = getP99(measureWrites());
+
+        isSearching.set(true);
+        List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < READER_COUNT; i++) {
+            Thread reader = new Thread(this::searchUntilStopped, "reader-" + i);
+            reader.start();
+            readers.add(reader);
+        }
+
+        List<Long> busyLatencies = measureWrites();
+        isSearching.set(false);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        long busyP99 = getP99(busyLatencies);
+        long medianSearch = getPercentile(new ArrayList<>(searchDurations), 50);
+        Log.i(TAG, "p99 write of " + BATCH_SIZE + " logs: " + idleP99 + " ms idle, " + busyP99 +
+                " ms during " + searchDurations.size() + " searches of " + medianSearch + " ms median");
+
+        assertTrue(searchDurations.size() > READER_COUNT);
+        // a writer that waited for the readers would wait for a whole search at least once in a while
+        assertTrue(busyP99 < medianSearch);
+    }
+
+    private List<Long> measureWrites() {
+        List<Long> latencies = new ArrayList<>(WRITES);
+        for (int i = 0; i < WRITES; i++) {
+            List<LogModel> batch = nextBatch();
+            long startTime = SystemClock.elapsedRealtime();
+            repository.addLogs(batch);
+            latencies.add(SystemClock.elapsedRealtime() - startTime);
+        }
+        return latencies;
+    }
+
+    // a substring search cannot use the full-text index, so it reads every row
+    private void searchUntilStopped() {
+        while (isSearching.get()) {
+            long startTime = SystemClock.elapsedRealtime();
+            repository.getLogsByFilter(0, 0, 100, null, null, "no such text", true);
+            searchDurations.add(SystemClock.elapsedRealtime() - startTime);
+        }
+    }
+
+    private List<LogModel> nextBatch() {
+        List<LogModel> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++, logNumber++) {
+            batch.add(new LogModel("I", "Worker", "processed item " + logNumber + " of the queue",
+                    System.currentTimeMillis()));
+        }
+        return batch;
+    }
+
+    private long getP99(List<Long> values) {
+        return getPercentile(values, 99);
+    }
+
+    private long getPercentile(List<Long> values, int percentile) {
+        Collections.sort(values);
+        int index = (int) Math.ceil(percentile / 100.0 * values.size()) - 1;
+        return values.get(Math.max(index, 0));
+    }
+}
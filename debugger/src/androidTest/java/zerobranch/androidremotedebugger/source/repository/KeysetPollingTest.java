@@ -0,0 +1,141 @@
+/*
+ * Copyright 2020 Arman Sargsyan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zerobranch.androidremotedebugger.source.repository;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import zerobranch.androidremotedebugger.source.models.LogModel;
+import zerobranch.androidremotedebugger.source.models.httplog.HttpLogModel;
+import zerobranch.androidremotedebugger.source.models.httplog.QueryType;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Polls for the newest rows while the tables grow, as the log pages do every second.
+ */
+@RunWith(AndroidJUnit4.class)
+public class KeysetPollingTest {
+    private static final String TAG = "KeysetPolling";
+    private static final int[] TABLE_SIZES = {10000, 50000, 200000};
+    private static final int NEW_ROWS = 20;
+    private static final int POLLS = 50;
+    private static final long TOLERANCE_NANOS = 1000000;
+
+    private File databaseFile;
+    private SQLiteDatabase database;
+    private LogRepository logRepository;
+    private HttpLogRepository httpLogRepository;
+
+    @Before
+    public void setUp() throws IOException {
+        databaseFile = File.createTempFile("keyset_polling", ".db");
+        database = SQLiteDatabase.openDatabase(databaseFile.getPath(), null,
+                SQLiteDatabase.CREATE_IF_NECESSARY | SQLiteDatabase.ENABLE_WRITE_AHEAD_LOGGING);
+
+        logRepository = new LogRepository(database);
+        logRepository.createLogsTable(database);
+        httpLogRepository = new HttpLogRepository(database);
+        httpLogRepository.createHttpLogsTable(database);
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+        SQLiteDatabase.deleteDatabase(databaseFile);
+    }
+
+    @Test
+    public void logPollDoesNotGrowWithTable() {
+        long[] pollNanos = new long[TABLE_SIZES.length];
+        for (int i = 0; i < TABLE_SIZES.length; i++) {
+            List<LogModel> logs = new ArrayList<>();
+            while (logRepository.getCount() + logs.size() < TABLE_SIZES[i]) {
+                logs.add(new LogModel("I", "Poll", "message " + logs.size(), System.currentTimeMillis()));
+            }
+            logRepository.addLogs(logs);
+
+            long lastSeenId = logs.get(logs.size() - 1 - NEW_ROWS).id;
+            assertEquals(NEW_ROWS, logRepository.getLogsByFilter(lastSeenId, 0, 100, null, null, null, false).size());
+
+            pollNanos[i] = getMedianNanos(() -> logRepository.getLogsByFilter(lastSeenId, 0, 100, null, null, null, false));
+        }
+
+        assertPollTimeFlat("logs", pollNanos);
+    }
+
+    @Test
+    public void httpLogPollDoesNotGrowWithTable() {
+        long[] pollNanos = new long[TABLE_SIZES.length];
+        for (int i = 0; i < TABLE_SIZES.length; i++) {
+            List<HttpLogModel> logs = new ArrayList<>();
+            while (httpLogRepository.getCount() + logs.size() < TABLE_SIZES[i]) {
+                HttpLogModel log = new HttpLogModel();
+                log.queryId = String.valueOf(logs.size());
+                log.queryType = QueryType.RESPONSE;
+                log.method = "GET";
+                log.code = 200;
+                log.url = "https://example.com/items/" + logs.size();
+                log.durationMs = 120L;
+                log.bodySizeBytes = 512L;
+                logs.add(log);
+            }
+            httpLogRepository.addAll(logs);
+
+            long lastSeenId = logs.get(logs.size() - 1 - NEW_ROWS).id;
+            assertEquals(NEW_ROWS, httpLogRepository.getHttpLogs(lastSeenId, 0, 100, null, false, 0, 0, null).size());
+
+            pollNanos[i] = getMedianNanos(() -> httpLogRepository.getHttpLogs(lastSeenId, 0, 100, null, false, 0, 0, null));
+        }
+
+        assertPollTimeFlat("network logs", pollNanos);
+    }
+
+    // the largest table is twenty times the smallest, a poll that scanned it would take many times longer
+    private void assertPollTimeFlat(String table, long[] pollNanos) {
+        Log.i(TAG, "median poll of " + NEW_ROWS + " new " + table + " at " + Arrays.toString(TABLE_SIZES) +
+                " rows: " + Arrays.toString(pollNanos) + " ns");
+
+        long smallest = pollNanos[0];
+        long largest = pollNanos[pollNanos.length - 1];
+        assertTrue(largest <= 3 * smallest + TOLERANCE_NANOS);
+    }
+
+    private long getMedianNanos(Runnable poll) {
+        long[] durations = new long[POLLS];
+        for (int i = 0; i < POLLS; i++) {
+            long startTime = System.nanoTime();
+            poll.run();
+            durations[i] = System.nanoTime() - startTime;
+        }
+        Arrays.sort(durations);
+        return durations[POLLS / 2];
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2020 Arman Sargsyan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zerobranch.androidremotedebugger.source.repository;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import zerobranch.androidremotedebugger.source.models.LogModel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares the full-text search of logs with the LIKE scan it replaced, over a million logs.
+ */
+@RunWith(AndroidJUnit4.class)
+public class LogSearchBenchmarkTest {
+    private static final String TAG = "LogSearchBenchmark";
+    private static final int LOG_COUNT = 1000000;
+    private static final int MATCH_EVERY = 1000;
+    private static final int RUNS = 5;
+    private static final String WORD = "needle";
+    private static final String[] WORDS = {"request", "finished", "user", "session", "cache", "loaded",
+            "retrying", "token", "refresh", "item", "list", "updated", "failed", "timeout"};
+
+    private File databaseFile;
+    private SQLiteDatabase database;
+    private LogRepository repository;
+
+    @Before
+    public void setUp() throws IOException {
+        databaseFile = File.createTempFile("log_search", ".db");
+        database = SQLiteDatabase.openDatabase(databaseFile.getPath(), null,
+                SQLiteDatabase.CREATE_IF_NECESSARY | SQLiteDatabase.ENABLE_WRITE_AHEAD_LOGGING);
+        database.execSQL("PRAGMA synchronous = NORMAL");
+
+        repository = new LogRepository(database);
+        repository.createLogsTable(database);
+
+        Random random = new Random(42);
+        List<LogModel> batch = new ArrayList<>();
+        for (int i = 1; i <= LOG_COUNT; i++) {
+            StringBuilder message = new StringBuilder();
+            for (int j = 0; j < 8; j++) {
+                message.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+            }
+            if (i % MATCH_EVERY == 0) {
+                message.append(WORD).append(' ');
+            }
+            message.append(i);
+
+            batch.add(new LogModel("D", "Benchmark", message.toString(), System.currentTimeMillis()));
+            if (batch.size() == 1000) {
+                repository.addLogs(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+        SQLiteDatabase.deleteDatabase(databaseFile);
+    }
+
+    @Test
+    public void fullTextSearchOutrunsLikeScan() {
+        List<Long> fullTextIds = search(false);
+        List<Long> likeIds = search(true);
+        assertEquals(LOG_COUNT / MATCH_EVERY, fullTextIds.size());
+        assertEquals(likeIds, fullTextIds);
+
+        long fullTextMs = getMedianSearchMs(false);
+        long likeMs = getMedianSearchMs(true);
+        Log.i(TAG, LOG_COUNT + " logs, median search: MATCH " + fullTextMs + " ms, LIKE " + likeMs + " ms");
+
+        assertTrue(fullTextMs < likeMs);
+    }
+
+    private long getMedianSearchMs(boolean isSubstringSearch) {
+        long[] durations = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long startTime = SystemClock.elapsedRealtime();
+            search(isSubstringSearch);
+            durations[i] = SystemClock.elapsedRealtime() - startTime;
+        }
+        Arrays.sort(durations);
+        return durations[RUNS / 2];
+    }
+
+    private List<Long> search(boolean isSubstringSearch) {
+        List<Long> ids = new ArrayList<>();
+        for (LogModel log : repository.getLogsByFilter(0, 0, LOG_COUNT, null, null, WORD, isSubstringSearch)) {
+            ids.add(log.id);
+        }
+        return ids;
+    }
+}
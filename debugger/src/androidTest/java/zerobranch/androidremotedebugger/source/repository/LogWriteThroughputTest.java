@@ -0,0 +1,99 @@
+/*
+ * Copyright 2020 Arman Sargsyan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zerobranch.androidremotedebugger.source.repository;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import zerobranch.androidremotedebugger.source.models.LogModel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares the group-committed writer with the one insert per log line it replaced.
+ */
+@RunWith(AndroidJUnit4.class)
+public class LogWriteThroughputTest {
+    private static final String TAG = "LogWriteThroughputTest";
+    private static final int ROW_COUNT = 5000;
+    private static final int BATCH_SIZE = 200;
+
+    private File databaseFile;
+    private SQLiteDatabase database;
+    private LogRepository repository;
+
+    @Before
+    public void setUp() throws IOException {
+        databaseFile = File.createTempFile("log_write", ".db");
+        // the same journal settings as the debugger store
+        database = SQLiteDatabase.openDatabase(databaseFile.getPath(), null,
+                SQLiteDatabase.CREATE_IF_NECESSARY | SQLiteDatabase.ENABLE_WRITE_AHEAD_LOGGING);
+        database.execSQL("PRAGMA synchronous = NORMAL");
+
+        repository = new LogRepository(database);
+        repository.createLogsTable(database);
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+        SQLiteDatabase.deleteDatabase(databaseFile);
+    }
+
+    @Test
+    public void batchesWriteFasterThanOneCommitPerLog() {
+        long startTime = SystemClock.elapsedRealtime();
+        for (int i = 0; i < ROW_COUNT; i++) {
+            repository.addLog(createLog(i));
+        }
+        long rowByRowMs = Math.max(1, SystemClock.elapsedRealtime() - startTime);
+
+        startTime = SystemClock.elapsedRealtime();
+        List<LogModel> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < ROW_COUNT; i++) {
+            batch.add(createLog(i));
+            if (batch.size() == BATCH_SIZE) {
+                repository.addLogs(batch);
+                batch.clear();
+            }
+        }
+        long batchedMs = Math.max(1, SystemClock.elapsedRealtime() - startTime);
+
+        Log.i(TAG, "one commit per log: " + ROW_COUNT * 1000L / rowByRowMs + " rows/s, " +
+                "batches of " + BATCH_SIZE + ": " + ROW_COUNT * 1000L / batchedMs + " rows/s");
+
+        assertEquals(2 * ROW_COUNT, repository.getCount());
+        assertTrue(batchedMs < rowByRowMs);
+    }
+
+    private LogModel createLog(int index) {
+        return new LogModel("D", "LogWriteThroughputTest", "log line number " + index, System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,169 @@
+// One WebSocket shared by all requests and live tails of a page.
+// Every call reports whether it was taken, so pages fall back to HTTP while the socket is down.
+const DebuggerSocket = (function () {
+    const RECONNECT_TIME = 3000;
+    const INITIAL_CREDITS = 8;
+
+    let socket = null;
+    let isSocketOpen = false;
+    let lastRequestId = 0;
+    let lastSubscriptionId = 0;
+    let pendingRequests = {};
+    let subscriptions = {};
+
+    function connect() {
+        if (!window.WebSocket) {
+            return;
+        }
+
+        let protocol = location.protocol === 'https:' ? 'wss://' : 'ws://';
+        socket = new WebSocket(protocol + location.host + '/socket');
+
+        socket.onopen = function () {
+            isSocketOpen = true;
+        };
+
+        socket.onmessage = function (event) {
+            onMessage(JSON.parse(event.data));
+        };
+
+        socket.onclose = function () {
+            isSocketOpen = false;
+            socket = null;
+
+            let requests = pendingRequests;
+            pendingRequests = {};
+            Object.keys(requests).forEach(function (requestId) {
+                let request = requests[requestId];
+                sendHttpRequest(request.method, request.url, request.params, request.success, request.error);
+            });
+
+            let closedSubscriptions = subscriptions;
+            subscriptions = {};
+            Object.keys(closedSubscriptions).forEach(function (id) {
+                closedSubscriptions[id].onClosed();
+            });
+
+            setTimeout(connect, RECONNECT_TIME);
+        };
+    }
+
+    function onMessage(message) {
+        if (message.type === 'response') {
+            let request = pendingRequests[message.requestId];
+            if (request == null) {
+                return;
+            }
+
+            delete pendingRequests[message.requestId];
+            if (message.status === 200) {
+                request.success(message.body);
+            } else if (request.error != null) {
+                request.error(message.status, '', message.body);
+            }
+        } else if (message.type === 'event') {
+            let subscription = subscriptions[message.id];
+            if (subscription == null) {
+                return;
+            }
+
+            subscription.onData(message.data);
+            send({type: 'ack', id: message.id, credits: 1});
+        } else if (message.type === 'closed') {
+            let subscription = subscriptions[message.id];
+            if (subscription != null) {
+                delete subscriptions[message.id];
+                subscription.onClosed();
+            }
+        }
+    }
+
+    function send(message) {
+        socket.send(JSON.stringify(message));
+    }
+
+    function toParams(query) {
+        let params = {};
+        new URLSearchParams(query).forEach(function (value, key) {
+            if (params[key] === undefined) {
+                params[key] = value;
+            } else if (Array.isArray(params[key])) {
+                params[key].push(value);
+            } else {
+                params[key] = [params[key], value];
+            }
+        });
+        return params;
+    }
+
+    function sendHttpRequest(method, url, params, successCallback, errorCallback) {
+        let xhr = new XMLHttpRequest();
+        xhr.onreadystatechange = function () {
+            if (xhr.readyState === 4) {
+                if (xhr.status === 200) {
+                    successCallback(xhr.responseText);
+                } else if (errorCallback != null) {
+                    errorCallback(xhr.status, xhr.statusText, xhr.responseText);
+                }
+            }
+        };
+
+        if (method === 'post') {
+            xhr.open('post', '/' + url, true);
+            xhr.setRequestHeader('Content-Type', 'application/x-www-form-urlencoded');
+            xhr.send(params);
+        } else {
+            xhr.open('get', url + '?' + params, true);
+            xhr.setRequestHeader('Content-Type', 'application/x-www-form-urlencoded');
+            xhr.send(null);
+        }
+    }
+
+    connect();
+
+    return {
+        isOpen: function () {
+            return isSocketOpen;
+        },
+
+        request: function (method, url, params, successCallback, errorCallback) {
+            if (!isSocketOpen) {
+                return false;
+            }
+
+            let requestId = ++lastRequestId;
+            pendingRequests[requestId] = {
+                method: method,
+                url: url,
+                params: params,
+                success: successCallback,
+                error: errorCallback
+            };
+
+            send({type: 'request', requestId: requestId, channel: url, params: toParams(params)});
+            return true;
+        },
+
+        subscribe: function (channel, params, onData, onClosed) {
+            if (!isSocketOpen) {
+                return null;
+            }
+
+            let id = String(++lastSubscriptionId);
+            subscriptions[id] = {onData: onData, onClosed: onClosed};
+            send({type: 'subscribe', id: id, channel: channel, params: toParams(params), credits: INITIAL_CREDITS});
+
+            return {
+                close: function () {
+                    if (subscriptions[id] !== undefined) {
+                        delete subscriptions[id];
+
+                        if (isSocketOpen) {
+                            send({type: 'unsubscribe', id: id});
+                        }
+                    }
+                }
+            };
+        }
+    };
+})();
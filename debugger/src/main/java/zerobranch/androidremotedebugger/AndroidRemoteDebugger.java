@@ -23,13 +23,23 @@ import org.jetbrains.annotations.NotNull;
 import zerobranch.androidremotedebugger.logging.DefaultLogger;
 import zerobranch.androidremotedebugger.logging.Logger;
 import zerobranch.androidremotedebugger.logging.RemoteLog;
+import zerobranch.androidremotedebugger.settings.BackpressurePolicy;
 import zerobranch.androidremotedebugger.settings.InternalSettings;
+import zerobranch.androidremotedebugger.settings.StorageSettings;
 import zerobranch.androidremotedebugger.source.local.LogLevel;
 import zerobranch.androidremotedebugger.source.managers.ContinuousDBManager;
 
 public final class AndroidRemoteDebugger {
     private static final int DEFAULT_PORT = 8080;
     private static final int MAX_PORT_VALUE = 8090;
+    private static final int DEFAULT_LOG_BATCH_SIZE = 200;
+    private static final long DEFAULT_LOG_FLUSH_INTERVAL = 500;
+    private static final int DEFAULT_HTTP_LOG_QUEUE_CAPACITY = 2000;
+    private static final int DEFAULT_SERVER_POOL_SIZE = 12;
+    private static final int DEFAULT_SERVER_QUEUE_LIMIT = 24;
+    private static final int DEFAULT_SERVER_STREAM_LIMIT = 8;
+    private static final long DEFAULT_ASSET_CACHE_MAX_BYTES = 512 * 1024;
+    private static final long DEFAULT_DATABASE_QUERY_TIMEOUT = 30000;
     private final Builder builder;
     private static RemoteLog remoteLog;
     private static AndroidRemoteDebugger instance;
@@ -74,7 +84,14 @@ public final class AndroidRemoteDebugger {
 
         InternalSettings internalSettings = new InternalSettings(
                 builder.enabledInternalLogging,
-                builder.enabledJsonPrettyPrint
+                builder.enabledJsonPrettyPrint,
+                builder.serverPoolSize,
+                builder.serverQueueLimit,
+                builder.serverStreamLimit,
+                builder.assetCacheMaxBytes,
+                builder.enabledAssetPreload,
+                builder.enabledAssetPreCompression,
+                builder.databaseQueryTimeout
         );
 
         ServerRunner.getInstance().init(builder.context, internalSettings, builder.port, new ServerRunner.ConnectionStatus() {
@@ -96,7 +113,15 @@ public final class AndroidRemoteDebugger {
                     }
                 }
 
-                ContinuousDBManager.init(builder.context);
+                ContinuousDBManager.init(builder.context, new StorageSettings(
+                        builder.logBatchSize,
+                        builder.logFlushInterval,
+                        builder.httpLogQueueCapacity,
+                        builder.httpLogBackpressurePolicy,
+                        builder.retentionMaxRows,
+                        builder.retentionMaxBytes,
+                        builder.retentionMaxAge
+                ));
                 remoteLog = new RemoteLog(androidRemoteDebugger.builder.logger);
             }
         });
@@ -195,6 +220,20 @@ public final class AndroidRemoteDebugger {
         private boolean enabledNotifications = true;
         private boolean includedUncaughtException = true;
         private int port = DEFAULT_PORT;
+        private int logBatchSize = DEFAULT_LOG_BATCH_SIZE;
+        private long logFlushInterval = DEFAULT_LOG_FLUSH_INTERVAL;
+        private int httpLogQueueCapacity = DEFAULT_HTTP_LOG_QUEUE_CAPACITY;
+        private BackpressurePolicy httpLogBackpressurePolicy = BackpressurePolicy.DROP_OLDEST;
+        private int retentionMaxRows;
+        private long retentionMaxBytes;
+        private long retentionMaxAge;
+        private int serverPoolSize = DEFAULT_SERVER_POOL_SIZE;
+        private int serverQueueLimit = DEFAULT_SERVER_QUEUE_LIMIT;
+        private int serverStreamLimit = DEFAULT_SERVER_STREAM_LIMIT;
+        private long assetCacheMaxBytes = DEFAULT_ASSET_CACHE_MAX_BYTES;
+        private boolean enabledAssetPreload;
+        private boolean enabledAssetPreCompression = true;
+        private long databaseQueryTimeout = DEFAULT_DATABASE_QUERY_TIMEOUT;
         private Logger logger;
 
         public Builder(Context context) {
@@ -241,6 +280,117 @@ public final class AndroidRemoteDebugger {
             return this;
         }
 
+        public Builder logBatchSize(int logBatchSize) {
+            if (logBatchSize <= 0) {
+                throw new IllegalArgumentException("logBatchSize must be greater than 0");
+            }
+            this.logBatchSize = logBatchSize;
+            return this;
+        }
+
+        public Builder logFlushInterval(long logFlushInterval) {
+            if (logFlushInterval <= 0) {
+                throw new IllegalArgumentException("logFlushInterval must be greater than 0");
+            }
+            this.logFlushInterval = logFlushInterval;
+            return this;
+        }
+
+        public Builder httpLogQueueCapacity(int httpLogQueueCapacity) {
+            if (httpLogQueueCapacity <= 0) {
+                throw new IllegalArgumentException("httpLogQueueCapacity must be greater than 0");
+            }
+            this.httpLogQueueCapacity = httpLogQueueCapacity;
+            return this;
+        }
+
+        public Builder httpLogBackpressure(BackpressurePolicy backpressurePolicy) {
+            if (backpressurePolicy == null) {
+                throw new IllegalArgumentException("backpressurePolicy must not be null");
+            }
+            this.httpLogBackpressurePolicy = backpressurePolicy;
+            return this;
+        }
+
+        public Builder retentionMaxRows(int retentionMaxRows) {
+            if (retentionMaxRows < 0) {
+                throw new IllegalArgumentException("retentionMaxRows must not be negative");
+            }
+            this.retentionMaxRows = retentionMaxRows;
+            return this;
+        }
+
+        public Builder retentionMaxBytes(long retentionMaxBytes) {
+            if (retentionMaxBytes < 0) {
+                throw new IllegalArgumentException("retentionMaxBytes must not be negative");
+            }
+            this.retentionMaxBytes = retentionMaxBytes;
+            return this;
+        }
+
+        public Builder retentionMaxAge(long retentionMaxAge) {
+            if (retentionMaxAge < 0) {
+                throw new IllegalArgumentException("retentionMaxAge must not be negative");
+            }
+            this.retentionMaxAge = retentionMaxAge;
+            return this;
+        }
+
+        public Builder serverPoolSize(int serverPoolSize) {
+            if (serverPoolSize <= 0) {
+                throw new IllegalArgumentException("serverPoolSize must be greater than 0");
+            }
+            this.serverPoolSize = serverPoolSize;
+            return this;
+        }
+
+        public Builder serverQueueLimit(int serverQueueLimit) {
+            if (serverQueueLimit <= 0) {
+                throw new IllegalArgumentException("serverQueueLimit must be greater than 0");
+            }
+            this.serverQueueLimit = serverQueueLimit;
+            return this;
+        }
+
+        /**
+         * The live updates of an open page, its socket or event stream, keep a connection for as long as
+         * the page is open. They get workers of their own on top of {@link #serverPoolSize(int)},
+         * at most this many; further ones are refused and those pages fall back to plain requests.
+         */
+        public Builder serverStreamLimit(int serverStreamLimit) {
+            if (serverStreamLimit < 0) {
+                throw new IllegalArgumentException("serverStreamLimit must not be negative");
+            }
+            this.serverStreamLimit = serverStreamLimit;
+            return this;
+        }
+
+        public Builder assetCacheMaxBytes(long assetCacheMaxBytes) {
+            if (assetCacheMaxBytes < 0) {
+                throw new IllegalArgumentException("assetCacheMaxBytes must not be negative");
+            }
+            this.assetCacheMaxBytes = assetCacheMaxBytes;
+            return this;
+        }
+
+        public Builder preloadAssets() {
+            enabledAssetPreload = true;
+            return this;
+        }
+
+        public Builder disableAssetPreCompression() {
+            enabledAssetPreCompression = false;
+            return this;
+        }
+
+        public Builder databaseQueryTimeout(long databaseQueryTimeout) {
+            if (databaseQueryTimeout <= 0) {
+                throw new IllegalArgumentException("databaseQueryTimeout must be greater than 0");
+            }
+            this.databaseQueryTimeout = databaseQueryTimeout;
+            return this;
+        }
+
         public AndroidRemoteDebugger build() {
             return new AndroidRemoteDebugger(this);
         }
@@ -16,28 +16,40 @@
 package zerobranch.androidremotedebugger;
 
 import android.content.Context;
-import android.content.res.AssetManager;
+import android.content.pm.PackageManager;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 
-import fi.iki.elonen.NanoHTTPD;
+import fi.iki.elonen.NanoWSD;
 import zerobranch.androidremotedebugger.api.base.Controller;
 import zerobranch.androidremotedebugger.api.database.DatabaseController;
 import zerobranch.androidremotedebugger.api.home.HomeController;
 import zerobranch.androidremotedebugger.api.log.LogController;
 import zerobranch.androidremotedebugger.api.network.NetworkController;
 import zerobranch.androidremotedebugger.api.sharedprefs.SharedPrefsController;
+import zerobranch.androidremotedebugger.http.AssetCache;
+import zerobranch.androidremotedebugger.http.BoundedAsyncRunner;
 import zerobranch.androidremotedebugger.http.Host;
 import zerobranch.androidremotedebugger.http.HttpResponse;
 import zerobranch.androidremotedebugger.settings.InternalSettings;
-import zerobranch.androidremotedebugger.utils.FileUtils;
 import zerobranch.androidremotedebugger.utils.InternalUtils;
 
-final class AndroidWebServer extends NanoHTTPD {
+final class AndroidWebServer extends NanoWSD {
+    private static final int RETRY_AFTER_SECONDS = 1;
+    private static final String IF_NONE_MATCH = "if-none-match";
+    private static final String ACCEPT_ENCODING = "accept-encoding";
+    private static final String GZIP_ETAG_SUFFIX = "-gzip";
     private final Context context;
-    private final AssetManager assetManager;
+    private final AssetCache assetCache;
     private final InternalSettings internalSettings;
+    private final BoundedAsyncRunner asyncRunner;
+    private final String assetsVersion;
     private Controller homeController;
     private Controller logController;
     private Controller databaseController;
@@ -48,11 +60,58 @@ final class AndroidWebServer extends NanoHTTPD {
         super("0.0.0.0", port);
         this.context = context;
         this.internalSettings = internalSettings;
-        assetManager = context.getAssets();
+        assetCache = new AssetCache(
+                context.getAssets(),
+                internalSettings.getAssetCacheMaxBytes(),
+                internalSettings.isEnabledAssetPreCompression()
+        );
+        assetsVersion = getAssetsVersion(context);
+
+        asyncRunner = new BoundedAsyncRunner(
+                internalSettings.getServerPoolSize(),
+                internalSettings.getServerQueueLimit(),
+                internalSettings.getServerStreamLimit(),
+                clientHandler -> ((ServerClientHandler) clientHandler).respondBusy()
+        );
+        setAsyncRunner(asyncRunner);
+    }
+
+    @Override
+    public void start(int timeout, boolean daemon) throws IOException {
+        super.start(timeout, daemon);
+
+        if (internalSettings.isEnabledAssetPreload()) {
+            final Thread preloadThread = new Thread(assetCache::preload, "AndroidRemoteDebugger-assets");
+            preloadThread.setDaemon(true);
+            preloadThread.start();
+        }
+    }
+
+    void destroy() {
+        stop();
+        asyncRunner.shutdown();
+    }
+
+    @Override
+    protected ClientHandler createClientHandler(Socket finalAccept, InputStream inputStream) {
+        return new ServerClientHandler(inputStream, finalAccept);
     }
 
     @Override
     public Response serve(IHTTPSession session) {
+        if (isWebsocketRequested(session) && !asyncRunner.startStreaming()) {
+            return getStreamLimitResponse();
+        }
+        return super.serve(session);
+    }
+
+    @Override
+    protected WebSocket openWebSocket(IHTTPSession handshake) {
+        return new DebuggerWebSocket(handshake, this);
+    }
+
+    @Override
+    protected Response serveHttp(IHTTPSession session) {
         final Method method = session.getMethod();
         final Host host = Host.getHost(session.getUri());
 
@@ -61,11 +120,11 @@ final class AndroidWebServer extends NanoHTTPD {
         }
 
         if (Method.GET.equals(method)) {
-            return getResponse(host, session.getParameters());
+            return getResponse(host, session.getParameters(), session.getHeaders());
         } else if (Method.POST.equals(method)) {
             Response response = parseParams(session);
             if (response == null) {
-                return getResponse(host, session.getParameters());
+                return getResponse(host, session.getParameters(), session.getHeaders());
             }
             return response;
         } else {
@@ -73,22 +132,15 @@ final class AndroidWebServer extends NanoHTTPD {
         }
     }
 
-    private Response getResponse(Host host, Map<String, List<String>> params) {
+    private Response getResponse(Host host, Map<String, List<String>> params, Map<String, String> headers) {
         try {
-            if (host == Host.INDEX) {
-                return HttpResponse.newFixedLengthResponse(getHomeController().execute(params));
-            } else if (host == Host.LOGGING) {
-                return HttpResponse.newFixedLengthResponse(getLogController().execute(params));
-            } else if (host == Host.DATABASE) {
-                return HttpResponse.newFixedLengthResponse(getDatabaseController().execute(params));
-            } else if (host == Host.SHARED_REFERENCES) {
-                return HttpResponse.newFixedLengthResponse(getSharedPrefsController().execute(params));
-            } else if (host == Host.NETWORK) {
-                return HttpResponse.newFixedLengthResponse(getNetworkController().execute(params));
-            } else if (host.isCss()) {
-                return getCssResponse(host);
-            } else if (host.isPng()) {
-                return getPngResponse(host);
+            Controller controller = getController(host);
+            if (host.isHtml() && params.isEmpty()) {
+                return getAssetResponse(host, headers);
+            } else if (controller != null) {
+                return getControllerResponse(controller, params);
+            } else if (host.isCss() || host.isJs() || host.isPng()) {
+                return getAssetResponse(host, headers);
             } else {
                 return getErrorPageResponse(Response.Status.NO_CONTENT,
                         Response.Status.NO_CONTENT.getDescription());
@@ -105,27 +157,88 @@ final class AndroidWebServer extends NanoHTTPD {
         }
     }
 
+    private Response getControllerResponse(Controller controller, Map<String, List<String>> params) throws ResponseException {
+        Response streamResponse = controller.executeStream(params);
+        if (streamResponse != null) {
+            return asyncRunner.startStreaming() ? streamResponse : getStreamLimitResponse();
+        }
+        return HttpResponse.newJsonResponse(controller.execute(params));
+    }
+
+    @Override
+    protected boolean useGzipWhenAccepted(Response response) {
+        // a gzip stream holds back small writes, which would stall live events
+        return super.useGzipWhenAccepted(response)
+                && !HttpResponse.MIME_EVENT_STREAM.equals(response.getMimeType())
+                && response.getStatus() != Response.Status.NOT_MODIFIED
+                && response.getHeader("Content-Encoding") == null;
+    }
+
     private Response getErrorPageResponse(Response.Status status, String description) {
         return HttpResponse.newErrorResponse(status, description);
     }
 
-    private Response getCssResponse(Host host) {
+    // the pages fall back to polling when their live updates are refused
+    private Response getStreamLimitResponse() {
+        final Response response = getErrorPageResponse(Response.Status.SERVICE_UNAVAILABLE,
+                "Too many live connections, close some of the open pages");
+        response.addHeader("Retry-After", String.valueOf(RETRY_AFTER_SECONDS));
+        return response;
+    }
+
+    private Response getAssetResponse(Host host, Map<String, String> headers) {
+        final AssetCache.Asset asset;
         try {
-            return HttpResponse.newCssResponse(
-                    FileUtils.getStreamFromAssets(assetManager, host.getPath()));
+            asset = assetCache.get(host);
         } catch (Exception ex) {
             return getErrorPageResponse(Response.Status.INTERNAL_ERROR,
                     String.format("Server internal error: %s", ex.getMessage()));
         }
+
+        final String acceptEncoding = headers.get(ACCEPT_ENCODING);
+        final boolean isGzipped = asset.getGzipData() != null
+                && acceptEncoding != null && acceptEncoding.contains("gzip");
+        final String eTag = getETag(host, isGzipped);
+
+        final Response response;
+        if (isMatchingETag(headers.get(IF_NONE_MATCH), eTag)) {
+            response = HttpResponse.newNotModifiedResponse(eTag);
+        } else {
+            response = HttpResponse.newAssetResponse(host.getMimeType(),
+                    isGzipped ? asset.getGzipData() : asset.getData(), isGzipped);
+            response.addHeader("ETag", eTag);
+            response.addHeader("Cache-Control", "no-cache");
+        }
+        response.addHeader("Vary", "Accept-Encoding");
+        return response;
+    }
+
+    // assets only change together with the apk, so its install time versions all of them
+    private String getETag(Host host, boolean isGzipped) {
+        return "\"" + assetsVersion + "-" + Integer.toHexString(host.getPath().hashCode())
+                + (isGzipped ? GZIP_ETAG_SUFFIX : "") + "\"";
+    }
+
+    private boolean isMatchingETag(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+
+        for (String value : ifNoneMatch.split(",")) {
+            final String candidate = value.trim();
+            if (candidate.equals("*") || candidate.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
     }
 
-    private Response getPngResponse(Host host) {
+    private static String getAssetsVersion(Context context) {
         try {
-            return HttpResponse.newPngResponse(
-                    FileUtils.getStreamFromAssets(assetManager, host.getPath()));
-        } catch (Exception ex) {
-            return getErrorPageResponse(Response.Status.INTERNAL_ERROR,
-                    String.format("Server internal error: %s", ex.getMessage()));
+            return Long.toHexString(context.getPackageManager()
+                    .getPackageInfo(context.getPackageName(), 0).lastUpdateTime);
+        } catch (PackageManager.NameNotFoundException ex) {
+            return Long.toHexString(System.currentTimeMillis());
         }
     }
 
@@ -139,6 +252,25 @@ final class AndroidWebServer extends NanoHTTPD {
         }
     }
 
+    void execute(Runnable task) {
+        asyncRunner.execute(task);
+    }
+
+    Controller getController(Host host) {
+        if (host == Host.INDEX) {
+            return getHomeController();
+        } else if (host == Host.LOGGING) {
+            return getLogController();
+        } else if (host == Host.DATABASE) {
+            return getDatabaseController();
+        } else if (host == Host.SHARED_REFERENCES) {
+            return getSharedPrefsController();
+        } else if (host == Host.NETWORK) {
+            return getNetworkController();
+        }
+        return null;
+    }
+
     private Controller getLogController() {
         if (logController == null) {
             logController = new LogController(context, internalSettings);
@@ -155,7 +287,7 @@ final class AndroidWebServer extends NanoHTTPD {
 
     private Controller getHomeController() {
         if (homeController == null) {
-            homeController = new HomeController(context, internalSettings);
+            homeController = new HomeController(context, internalSettings, asyncRunner);
         }
         return homeController;
     }
@@ -173,4 +305,33 @@ final class AndroidWebServer extends NanoHTTPD {
         }
         return networkController;
     }
+
+    private final class ServerClientHandler extends ClientHandler {
+        private final Socket socket;
+
+        ServerClientHandler(InputStream inputStream, Socket socket) {
+            super(inputStream, socket);
+            this.socket = socket;
+        }
+
+        void respondBusy() {
+            final String body = Response.Status.SERVICE_UNAVAILABLE.getDescription();
+            final String response = "HTTP/1.1 " + body + "\r\n" +
+                    "Retry-After: " + RETRY_AFTER_SECONDS + "\r\n" +
+                    "Content-Type: " + MIME_PLAINTEXT + "\r\n" +
+                    "Content-Length: " + body.length() + "\r\n" +
+                    "Connection: close\r\n" +
+                    "\r\n" +
+                    body;
+
+            try {
+                final OutputStream outputStream = socket.getOutputStream();
+                outputStream.write(response.getBytes(StandardCharsets.US_ASCII));
+                outputStream.flush();
+            } catch (IOException ignored) {
+            } finally {
+                close();
+            }
+        }
+    }
 }
@@ -0,0 +1,410 @@
+/*
+ * Copyright 2020 Arman Sargsyan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zerobranch.androidremotedebugger;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import fi.iki.elonen.NanoHTTPD;
+import fi.iki.elonen.NanoWSD;
+import zerobranch.androidremotedebugger.api.base.Controller;
+import zerobranch.androidremotedebugger.http.EventSink;
+import zerobranch.androidremotedebugger.http.Host;
+import zerobranch.androidremotedebugger.utils.InternalUtils;
+
+/**
+ * One dashboard connection. Text frames carry JSON messages:
+ * <ul>
+ * <li>{@code {"type":"request","requestId":1,"channel":"database","params":{...}}} runs the
+ * controller of the channel like an HTTP request and is answered with
+ * {@code {"type":"response","requestId":1,"status":200,"body":"..."}};</li>
+ * <li>{@code {"type":"subscribe","id":"logs","channel":"logging","params":{...},"credits":8}} starts
+ * a live tail answered with {@code {"type":"event","id":"logs","data":[...]}} messages;</li>
+ * <li>{@code {"type":"ack","id":"logs","credits":1}} grants more events to a subscription,
+ * which never has more unacknowledged events in flight than it was granted;</li>
+ * <li>{@code {"type":"unsubscribe","id":"logs"}} stops it. A subscription that buffers too many events
+ * for a slow reader is dropped with {@code {"type":"closed","id":"logs"}}.</li>
+ * </ul>
+ * Requests, subscriptions and backlog reads run on the server's workers, so a slow query never holds up
+ * the frames that follow it. Messages are written from a per-connection thread, so a slow reader
+ * never blocks the log writer.
+ */
+final class DebuggerWebSocket extends NanoWSD.WebSocket {
+    private static final long PING_INTERVAL = 3000;
+    private static final int MAX_PENDING_EVENTS = 64;
+    private static final byte[] PING_PAYLOAD = new byte[0];
+
+    private final AndroidWebServer server;
+    private final Gson gson = new Gson();
+    private final ConcurrentMap<String, Subscription> subscriptions = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService sender = new ScheduledThreadPoolExecutor(1, runnable -> {
+        final Thread thread = new Thread(runnable, "AndroidRemoteDebugger-ws");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    DebuggerWebSocket(NanoHTTPD.IHTTPSession handshakeRequest, AndroidWebServer server) {
+        super(handshakeRequest);
+        this.server = server;
+    }
+
+    @Override
+    protected void onOpen() {
+        // the server socket times out idle reads, the pongs keep the connection readable
+        sender.scheduleWithFixedDelay(() -> {
+            try {
+                ping(PING_PAYLOAD);
+            } catch (IOException ex) {
+                release();
+            }
+        }, PING_INTERVAL, PING_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    protected void onClose(NanoWSD.WebSocketFrame.CloseCode code, String reason, boolean initiatedByRemote) {
+        release();
+    }
+
+    @Override
+    protected void onMessage(NanoWSD.WebSocketFrame frame) {
+        final JsonObject message;
+        try {
+            message = JsonParser.parseString(frame.getTextPayload()).getAsJsonObject();
+        } catch (RuntimeException ex) {
+            return;
+        }
+
+        final String type = getString(message, "type");
+        if ("request".equals(type)) {
+            if (!dispatch(() -> onRequest(message))) {
+                sendBusy(message);
+            }
+        } else if ("subscribe".equals(type)) {
+            onSubscribe(message);
+        } else if ("ack".equals(type)) {
+            Subscription subscription = subscriptions.get(getString(message, "id"));
+            if (subscription != null) {
+                subscription.grant(getInt(message, "credits", 1));
+            }
+        } else if ("unsubscribe".equals(type)) {
+            Subscription subscription = subscriptions.remove(getString(message, "id"));
+            if (subscription != null) {
+                subscription.close();
+            }
+        }
+    }
+
+    @Override
+    protected void onPong(NanoWSD.WebSocketFrame pong) { }
+
+    @Override
+    protected void onException(IOException exception) {
+        release();
+    }
+
+    private void release() {
+        for (Subscription subscription : subscriptions.values()) {
+            subscription.close();
+        }
+        subscriptions.clear();
+        sender.shutdownNow();
+    }
+
+    private boolean dispatch(Runnable task) {
+        try {
+            server.execute(task);
+            return true;
+        } catch (RejectedExecutionException ex) {
+            return false;
+        }
+    }
+
+    private void sendBusy(JsonObject message) {
+        final JsonObject response = new JsonObject();
+        response.addProperty("type", "response");
+        response.add("requestId", message.get("requestId"));
+        response.addProperty("status", NanoHTTPD.Response.Status.SERVICE_UNAVAILABLE.getRequestStatus());
+        response.addProperty("body", NanoHTTPD.Response.Status.SERVICE_UNAVAILABLE.getDescription());
+        post(gson.toJson(response));
+    }
+
+    private void onRequest(JsonObject message) {
+        final JsonObject response = new JsonObject();
+        response.addProperty("type", "response");
+        response.add("requestId", message.get("requestId"));
+
+        final Controller controller = getController(message);
+        if (controller == null) {
+            response.addProperty("status", NanoHTTPD.Response.Status.NOT_FOUND.getRequestStatus());
+            response.addProperty("body", "Sorry we could not find that page");
+            post(gson.toJson(response));
+            return;
+        }
+
+        try {
+            response.addProperty("body", controller.execute(getParams(message)));
+            response.addProperty("status", NanoHTTPD.Response.Status.OK.getRequestStatus());
+        } catch (NanoHTTPD.ResponseException ex) {
+            response.addProperty("status", ex.getStatus().getRequestStatus());
+            response.addProperty("body", ex.getMessage() + "\n" + InternalUtils.getStackTrace(ex));
+        } catch (Throwable th) {
+            response.addProperty("status", NanoHTTPD.Response.Status.BAD_REQUEST.getRequestStatus());
+            response.addProperty("body", th.getMessage() + "\n" + InternalUtils.getStackTrace(th));
+        }
+
+        post(gson.toJson(response));
+    }
+
+    private void onSubscribe(JsonObject message) {
+        final String id = getString(message, "id");
+        final Controller controller = getController(message);
+
+        if (id == null || controller == null) {
+            sendClosed(id);
+            return;
+        }
+
+        final Subscription subscription = new Subscription(id, getInt(message, "credits", 1));
+        final Subscription previous = subscriptions.put(id, subscription);
+        if (previous != null) {
+            previous.close();
+        }
+
+        // registered here, on the read thread, so an unsubscribe that follows right away finds it
+        final boolean isDispatched = dispatch(() -> {
+            final Runnable unsubscribe = controller.subscribe(getParams(message), subscription);
+            if (unsubscribe == null) {
+                subscriptions.remove(id, subscription);
+                sendClosed(id);
+                return;
+            }
+            subscription.setUnsubscribe(unsubscribe);
+        });
+
+        if (!isDispatched) {
+            subscriptions.remove(id, subscription);
+            subscription.close();
+            sendClosed(id);
+        }
+    }
+
+    private Controller getController(JsonObject message) {
+        final String channel = getString(message, "channel");
+        if (channel == null) {
+            return null;
+        }
+
+        final Host host = Host.getHost(channel.startsWith("/") ? channel : "/" + channel);
+        return host == null ? null : server.getController(host);
+    }
+
+    private Map<String, List<String>> getParams(JsonObject message) {
+        final Map<String, List<String>> params = new HashMap<>();
+        final JsonElement rawParams = message.get("params");
+
+        if (rawParams != null && rawParams.isJsonObject()) {
+            for (Map.Entry<String, JsonElement> entry : rawParams.getAsJsonObject().entrySet()) {
+                final JsonElement value = entry.getValue();
+                final List<String> values = new ArrayList<>();
+
+                if (value.isJsonArray()) {
+                    for (JsonElement item : value.getAsJsonArray()) {
+                        values.add(item.isJsonNull() ? "" : item.getAsString());
+                    }
+                } else {
+                    values.add(value.isJsonNull() ? "" : value.getAsString());
+                }
+                params.put(entry.getKey(), values);
+            }
+        }
+        return params;
+    }
+
+    private void sendClosed(String id) {
+        final JsonObject closed = new JsonObject();
+        closed.addProperty("type", "closed");
+        closed.addProperty("id", id);
+        post(gson.toJson(closed));
+    }
+
+    private void post(final String text) {
+        try {
+            sender.execute(() -> {
+                try {
+                    send(text);
+                } catch (IOException ignored) { }
+            });
+        } catch (RejectedExecutionException ignored) { }
+    }
+
+    private static String getString(JsonObject message, String key) {
+        final JsonElement element = message.get(key);
+        return element == null || element.isJsonNull() ? null : element.getAsString();
+    }
+
+    private static int getInt(JsonObject message, String key, int defaultValue) {
+        try {
+            final JsonElement element = message.get(key);
+            return element == null || element.isJsonNull() ? defaultValue : element.getAsInt();
+        } catch (RuntimeException ex) {
+            return defaultValue;
+        }
+    }
+
+    private final class Subscription implements EventSink {
+        private final String id;
+        private final Queue<String> pending = new ArrayDeque<>();
+        private int credits;
+        private boolean isClosed;
+        private boolean isSendingBacklog;
+        private Backlog backlog;
+        private Runnable unsubscribe;
+
+        Subscription(String id, int credits) {
+            this.id = id;
+            this.credits = Math.max(credits, 1);
+        }
+
+        @Override
+        public synchronized boolean send(String event, String data) {
+            if (isClosed) {
+                return false;
+            }
+
+            final String message = "{\"type\":\"event\",\"id\":" + gson.toJson(id) +
+                    ",\"event\":" + gson.toJson(event) +
+                    ",\"data\":" + data + "}";
+
+            if (credits > 0) {
+                credits--;
+                post(message);
+                return true;
+            }
+
+            if (pending.size() >= MAX_PENDING_EVENTS) {
+                subscriptions.remove(id, this);
+                close();
+                sendClosed(id);
+                return false;
+            }
+
+            pending.add(message);
+            return true;
+        }
+
+        @Override
+        public synchronized boolean isClosed() {
+            return isClosed;
+        }
+
+        @Override
+        public void setBacklog(Backlog backlog) {
+            synchronized (this) {
+                this.backlog = backlog;
+            }
+            sendBacklog();
+        }
+
+        void grant(int count) {
+            final boolean hasBacklog;
+            synchronized (this) {
+                credits += Math.max(count, 0);
+
+                while (credits > 0 && !pending.isEmpty()) {
+                    credits--;
+                    post(pending.poll());
+                }
+                hasBacklog = backlog != null;
+            }
+
+            // the backlog is read from the database, which must not hold up the read thread,
+            // unless the workers are too busy to take it
+            if (hasBacklog && !dispatch(this::sendBacklog)) {
+                sendBacklog();
+            }
+        }
+
+        private void sendBacklog() {
+            while (true) {
+                final Backlog current;
+                synchronized (this) {
+                    if (isClosed || isSendingBacklog || backlog == null || credits == 0 || !pending.isEmpty()) {
+                        return;
+                    }
+                    isSendingBacklog = true;
+                    current = backlog;
+                }
+
+                boolean hasMore = false;
+                try {
+                    hasMore = current.sendNext();
+                } finally {
+                    synchronized (this) {
+                        isSendingBacklog = false;
+                        if (!hasMore) {
+                            backlog = null;
+                        }
+                    }
+                }
+            }
+        }
+
+        void setUnsubscribe(Runnable unsubscribe) {
+            final boolean isAlreadyClosed;
+            synchronized (this) {
+                this.unsubscribe = unsubscribe;
+                isAlreadyClosed = isClosed;
+            }
+
+            if (isAlreadyClosed) {
+                unsubscribe.run();
+            }
+        }
+
+        void close() {
+            final Runnable action;
+            synchronized (this) {
+                if (isClosed) {
+                    return;
+                }
+
+                isClosed = true;
+                pending.clear();
+                action = unsubscribe;
+            }
+
+            if (action != null) {
+                action.run();
+            }
+        }
+    }
+}
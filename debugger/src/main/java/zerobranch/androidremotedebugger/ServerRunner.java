@@ -63,6 +63,9 @@ final class ServerRunner {
             print(String.format("Android Remote Debugger is started. Go to: http://%s", ipPort));
             connectionStatus.onResult(true, ipPort);
         } catch (Exception ex) {
+            if (androidWebServer != null) {
+                androidWebServer.destroy();
+            }
             printErr(String.format("Failed connection. %s is busy", ipPort), ex);
             connectionStatus.onResult(false, ipPort);
         }
@@ -74,7 +77,7 @@ final class ServerRunner {
 
     static void stop() {
         if (isAlive()) {
-            instance.androidWebServer.stop();
+            instance.androidWebServer.destroy();
             instance.androidWebServer = null;
             instance.print("Android Remote Debugger is stopped.");
         }
@@ -29,6 +29,7 @@ import java.util.List;
 import java.util.Map;
 
 import fi.iki.elonen.NanoHTTPD;
+import zerobranch.androidremotedebugger.http.EventSink;
 import zerobranch.androidremotedebugger.settings.InternalSettings;
 import zerobranch.androidremotedebugger.utils.InternalUtils;
 
@@ -48,6 +49,24 @@ public abstract class Controller {
 
     public abstract String execute(Map<String, List<String>> params) throws NanoHTTPD.ResponseException;
 
+    /**
+     * Returns a streaming response for the given request,
+     * or {@code null} if it should be answered by {@link #execute(Map)}.
+     */
+    public NanoHTTPD.Response executeStream(Map<String, List<String>> params) throws NanoHTTPD.ResponseException {
+        return null;
+    }
+
+    /**
+     * Starts pushing the events selected by the given params to the sink.
+     *
+     * @return the action that stops the subscription,
+     * or {@code null} if this controller has nothing to subscribe to
+     */
+    public Runnable subscribe(Map<String, List<String>> params, EventSink sink) {
+        return null;
+    }
+
     @SuppressWarnings("ConstantConditions")
     protected boolean notContains(Map<String, List<String>> params, String key) {
         return !params.containsKey(key) || params.get(key) == null || params.get(key).isEmpty();
@@ -75,6 +94,20 @@ public abstract class Controller {
         return Integer.parseInt(rawValue);
     }
 
+    @SuppressWarnings({"ConstantConditions", "SameParameterValue"})
+    protected long getLongValue(Map<String, List<String>> params, String key, long defaultValue) {
+        if (notContains(params, key)) {
+            return defaultValue;
+        }
+
+        String rawValue = params.get(key).get(0);
+        if (!InternalUtils.isLong(rawValue)) {
+            return defaultValue;
+        }
+
+        return Long.parseLong(rawValue);
+    }
+
     @SuppressWarnings({"ConstantConditions", "SameParameterValue"})
     protected boolean getBooleanValue(Map<String, List<String>> params, String key, boolean defaultValue) {
         if (notContains(params, key)) {
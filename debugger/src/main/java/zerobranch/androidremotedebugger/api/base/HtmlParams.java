@@ -21,4 +21,5 @@ public interface HtmlParams {
     String PAGE = "page";
     String SIZE = "size";
     String DATA = "data";
+    String FORMAT = "format";
 }
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2020 Arman Sargsyan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zerobranch.androidremotedebugger.api.base;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import zerobranch.androidremotedebugger.http.EventSink;
+import zerobranch.androidremotedebugger.source.managers.ContinuousDBManager;
+
+/**
+ * Live tail of a log table for one {@link EventSink}. It is subscribed before the stored rows
+ * are read, so nothing written in between is lost. The stored rows are then sent as the sink's
+ * backlog, one page at a time on the sink's thread, and live rows are held back until the backlog
+ * is done. A live row is only sent if its id is above the last one sent.
+ */
+public abstract class LiveTail<T> implements ContinuousDBManager.Subscriber<T>, EventSink.Backlog {
+    private final EventSink sink;
+    private final String event;
+    private final int pageSize;
+    private final List<T> held = new ArrayList<>();
+    private long lastId;
+    private boolean isCatchingUp = true;
+    private boolean isHeldOverflowed;
+
+    protected LiveTail(EventSink sink, String event, long afterId, int pageSize) {
+        this.sink = sink;
+        this.event = event;
+        this.lastId = afterId;
+        this.pageSize = pageSize;
+    }
+
+    protected abstract List<T> getPage(long afterId);
+
+    protected abstract boolean matches(T item);
+
+    protected abstract long getId(T item);
+
+    /**
+     * @param isShared whether the items are also handed to other subscribers and must not be changed
+     */
+    protected abstract String serialize(List<T> items, boolean isShared);
+
+    public abstract void unsubscribe();
+
+    @Override
+    public boolean sendNext() {
+        if (sink.isClosed()) {
+            return false;
+        }
+
+        final long afterId;
+        synchronized (this) {
+            afterId = lastId;
+        }
+
+        final List<T> page = getPage(afterId);
+
+        synchronized (this) {
+            send(page, false);
+            if (page.size() == pageSize) {
+                return true;
+            }
+
+            // rows were written faster than they could be held, they are read from the table instead
+            if (isHeldOverflowed) {
+                isHeldOverflowed = false;
+                held.clear();
+                return true;
+            }
+
+            isCatchingUp = false;
+            send(held, true);
+            held.clear();
+            return false;
+        }
+    }
+
+    @Override
+    public void onAdded(List<T> items) {
+        if (sink.isClosed()) {
+            unsubscribe();
+            return;
+        }
+
+        final List<T> matched = new ArrayList<>();
+        for (T item : items) {
+            if (matches(item)) {
+                matched.add(item);
+            }
+        }
+
+        synchronized (this) {
+            if (!isCatchingUp) {
+                send(matched, true);
+            } else if (!isHeldOverflowed) {
+                held.addAll(matched);
+                if (held.size() > pageSize) {
+                    isHeldOverflowed = true;
+                    held.clear();
+                }
+            }
+        }
+    }
+
+    private void send(List<T> items, boolean isShared) {
+        final List<T> fresh = new ArrayList<>();
+        for (T item : items) {
+            if (getId(item) > lastId) {
+                fresh.add(item);
+            }
+        }
+
+        if (fresh.isEmpty()) {
+            return;
+        }
+
+        lastId = getId(fresh.get(fresh.size() - 1));
+        sink.send(event, serialize(fresh, isShared));
+    }
+}
@@ -16,20 +16,28 @@
 package zerobranch.androidremotedebugger.api.database;
 
 import android.content.Context;
+import android.database.Cursor;
+import android.os.OperationCanceledException;
+import android.os.SystemClock;
 
+import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 import fi.iki.elonen.NanoHTTPD;
 import fi.iki.elonen.NanoHTTPD.ResponseException;
 import zerobranch.androidremotedebugger.api.base.Controller;
 import zerobranch.androidremotedebugger.api.base.HtmlParams;
 import zerobranch.androidremotedebugger.http.Host;
+import zerobranch.androidremotedebugger.http.HttpResponse;
+import zerobranch.androidremotedebugger.http.JsonStream;
 import zerobranch.androidremotedebugger.settings.InternalSettings;
 import zerobranch.androidremotedebugger.source.managers.DatabaseManager;
+import zerobranch.androidremotedebugger.source.managers.SearchResult;
 import zerobranch.androidremotedebugger.source.models.DeletingDatabase;
-import zerobranch.androidremotedebugger.source.models.Table;
+import zerobranch.androidremotedebugger.source.models.QueryPlan;
 import zerobranch.androidremotedebugger.source.models.Tables;
 import zerobranch.androidremotedebugger.source.models.UpdatingDatabase;
 import zerobranch.androidremotedebugger.utils.FileUtils;
@@ -38,11 +46,27 @@ public class DatabaseController extends Controller {
     private static final int FIRST_PAGE = 1;
     private static final int LAST_PAGE = -1;
     private static final int DEFAULT_PAGE_SIZE = 15;
+    private static final int DEFAULT_SEARCH_LIMIT = 1000;
+    private static final String EXPORT_QUERY_FILE_NAME = "query";
+    private static final String CANCEL_REASON_TIMEOUT = "timeout";
+    private static final String CANCEL_REASON_CANCELLED = "cancelled";
+
+    private final RunningQueries runningQueries = new RunningQueries();
 
     public DatabaseController(Context context, InternalSettings internalSettings) {
         super(context, internalSettings);
     }
 
+    @Override
+    public NanoHTTPD.Response executeStream(Map<String, List<String>> params) throws ResponseException {
+        if (params != null && params.containsKey(DatabaseHtmlKey.EXPORT)) {
+            return export(params);
+        }
+
+        final JsonStream stream = getTableStream(params);
+        return stream != null ? HttpResponse.newJsonStreamResponse(stream) : null;
+    }
+
     @Override
     public String execute(Map<String, List<String>> params) throws ResponseException {
         if (params == null || params.isEmpty()) {
@@ -51,8 +75,10 @@ public class DatabaseController extends Controller {
             return getDatabases();
         } else if (params.containsKey(DatabaseHtmlKey.GET_TABLES)) {
             return getTables(params);
-        } else if (params.containsKey(DatabaseHtmlKey.GET_TABLE)) {
-            return getTable(params);
+        } else if (params.containsKey(DatabaseHtmlKey.GET_TABLE)
+                || params.containsKey(DatabaseHtmlKey.GET_BY_QUERY)
+                || params.containsKey(DatabaseHtmlKey.SEARCH)) {
+            return toJson(getTableStream(params));
         } else if (params.containsKey(DatabaseHtmlKey.UPDATE_TABLE)) {
             return updateTable(params);
         } else if (params.containsKey(DatabaseHtmlKey.DELETE_TABLE_ITEMS)) {
@@ -61,16 +87,68 @@ public class DatabaseController extends Controller {
             return dropDatabase(params);
         } else if (params.containsKey(DatabaseHtmlKey.DROP_TABLE)) {
             return dropTable(params);
+        } else if (params.containsKey(DatabaseHtmlKey.CANCEL_QUERY)) {
+            return cancelQuery(params);
+        } else if (params.containsKey(DatabaseHtmlKey.EXPLAIN_QUERY)) {
+            return explainQuery(params);
+        }
+
+        return EMPTY;
+    }
+
+    private JsonStream getTableStream(Map<String, List<String>> params) throws ResponseException {
+        if (params == null) {
+            return null;
+        } else if (params.containsKey(DatabaseHtmlKey.GET_TABLE)) {
+            return getTable(params);
         } else if (params.containsKey(DatabaseHtmlKey.GET_BY_QUERY)) {
             return getByQuery(params);
         } else if (params.containsKey(DatabaseHtmlKey.SEARCH)) {
             return search(params);
         }
+        return null;
+    }
 
-        return EMPTY;
+    private NanoHTTPD.Response export(Map<String, List<String>> params) throws ResponseException {
+        final ExportFormat format = ExportFormat.fromExtension(getStringValue(params, HtmlParams.FORMAT));
+        if (format == null) {
+            throw new ResponseException(NanoHTTPD.Response.Status.BAD_REQUEST,
+                "'" + HtmlParams.FORMAT + "' must be one of csv, jsonl or sql");
+        }
+
+        final String tableName = getStringValue(params, HtmlParams.NAME);
+        final String query = getStringValue(params, HtmlParams.DATA);
+
+        final ExportStream stream;
+        final String fileName;
+        if (tableName != null) {
+            stream = ExportStream.ofTable(getDBAccess(), format, tableName);
+            fileName = tableName;
+        } else if (query != null) {
+            if (!DatabaseManager.isSelectQuery(query)) {
+                throw new ResponseException(NanoHTTPD.Response.Status.BAD_REQUEST,
+                    "only select queries can be exported");
+            }
+            stream = ExportStream.ofQuery(getDBAccess(), format, query);
+            fileName = EXPORT_QUERY_FILE_NAME;
+        } else {
+            throwEmptyParameterException(HtmlParams.NAME);
+            return null;
+        }
+
+        return HttpResponse.newDownloadResponse(format.getMimeType(),
+            fileName + "." + format.getExtension(), stream);
     }
 
-    private String getTable(Map<String, List<String>> params) throws ResponseException {
+    private String toJson(JsonStream stream) throws ResponseException {
+        try {
+            return stream.toJson();
+        } catch (IOException ex) {
+            throw new ResponseException(NanoHTTPD.Response.Status.INTERNAL_ERROR, ex.getMessage());
+        }
+    }
+
+    private JsonStream getTable(Map<String, List<String>> params) throws ResponseException {
         if (notContains(params, HtmlParams.NAME)) {
             throwEmptyParameterException(HtmlParams.NAME);
         }
@@ -79,15 +157,59 @@ public class DatabaseController extends Controller {
         int tablePage = getIntValue(params, HtmlParams.PAGE, FIRST_PAGE);
         int pageSize = getIntValue(params, HtmlParams.SIZE, DEFAULT_PAGE_SIZE);
 
-        final int tablesCount = getDBAccess().getTableDataCount(tableName);
+        // the last page has to be found exactly, an estimate may point past the end of the table
+        Integer tablesCount = null;
+        if (tablePage != LAST_PAGE && getBooleanValue(params, DatabaseHtmlKey.APPROXIMATE_COUNT, false)) {
+            tablesCount = getDBAccess().getApproximateTableDataCount(tableName);
+        }
+
+        final boolean isCountApproximate = tablesCount != null;
+        if (tablesCount == null) {
+            tablesCount = getDBAccess().getTableDataCount(tableName);
+        }
+
+        final String pageKey = getDBAccess().getPageKey(tableName);
+        final Cursor cursor;
 
         if (tablePage == LAST_PAGE) {
             tablePage = (int) Math.ceil((double) tablesCount / pageSize);
+            if (pageKey != null) {
+                final int lastPageSize = tablesCount - (tablePage - 1) * pageSize;
+                cursor = getDBAccess().queryTableDataBefore(tableName, pageKey, null, lastPageSize);
+            } else {
+                cursor = getDBAccess().queryTableData(tableName, null, tablePage, pageSize);
+            }
+        } else {
+            cursor = queryPage(params, tableName, pageKey, tablePage, pageSize);
         }
 
-        final Table table = getDBAccess().getTableData(tableName, tablePage, pageSize);
-        table.count = tablesCount;
-        return serialize(table);
+        return new TableJsonStream(
+            getDBAccess().getTableHeaders(tableName),
+            cursor,
+            tablesCount,
+            isCountApproximate
+        );
+    }
+
+    // neighbouring pages are found by an index seek from a key of the current page,
+    // only a jump to an arbitrary page has to skip rows with an offset
+    private Cursor queryPage(Map<String, List<String>> params, String tableName, String pageKey, int page, int pageSize) {
+        final String afterKey = getStringValue(params, DatabaseHtmlKey.AFTER_KEY);
+        final String beforeKey = getStringValue(params, DatabaseHtmlKey.BEFORE_KEY);
+        final String fromKey = getStringValue(params, DatabaseHtmlKey.FROM_KEY);
+
+        if (pageKey == null) {
+            return getDBAccess().queryTableData(tableName, null, page, pageSize);
+        } else if (afterKey != null) {
+            return getDBAccess().queryTableDataAfter(tableName, pageKey, afterKey, false, pageSize);
+        } else if (beforeKey != null) {
+            return getDBAccess().queryTableDataBefore(tableName, pageKey, beforeKey, pageSize);
+        } else if (fromKey != null) {
+            return getDBAccess().queryTableDataAfter(tableName, pageKey, fromKey, true, pageSize);
+        } else if (page <= FIRST_PAGE) {
+            return getDBAccess().queryTableDataAfter(tableName, pageKey, null, false, pageSize);
+        }
+        return getDBAccess().queryTableData(tableName, pageKey, page, pageSize);
     }
 
     private String getTables(Map<String, List<String>> params) throws ResponseException {
@@ -179,16 +301,108 @@ public class DatabaseController extends Controller {
         return serialize(databases);
     }
 
-    private String getByQuery(Map<String, List<String>> params) throws ResponseException {
+    private JsonStream getByQuery(Map<String, List<String>> params) throws ResponseException {
+        if (notContains(params, HtmlParams.DATA)) {
+            throwEmptyParameterException(HtmlParams.DATA);
+        }
+
+        final String query = getStringValue(params, HtmlParams.DATA);
+        final long startTime = SystemClock.elapsedRealtime();
+        final RunningQueries.RunningQuery runningQuery = startQuery(params);
+
+        Cursor cursor = null;
+        try {
+            cursor = getDBAccess().queryByCustomQuery(query, runningQuery.getSignal());
+            if (cursor != null) {
+                // stepping onto the first row runs the query into its first window, so a query that is too slow
+                // is cancelled before anything is sent. SQLiteCursor counts the remaining rows at this point too
+                cursor.moveToFirst();
+                cursor.moveToPosition(-1);
+            }
+        } catch (OperationCanceledException ex) {
+            runningQueries.finish(runningQuery);
+            if (cursor != null) {
+                cursor.close();
+            }
+
+            return new TableJsonStream(Collections.emptyList(), null, 0)
+                .property("isCancelled", true)
+                .property("cancelReason", getCancelReason(runningQuery))
+                .property("durationMs", SystemClock.elapsedRealtime() - startTime);
+        } catch (RuntimeException ex) {
+            runningQueries.finish(runningQuery);
+            throw ex;
+        }
+
+        // the rest of the rows are read while the response is written, which is not limited in time,
+        // but the query can still be cancelled until the stream is closed
+        runningQuery.stopTimeout();
+
+        final TableJsonStream stream;
+        if (cursor == null) {
+            runningQueries.finish(runningQuery);
+            stream = new TableJsonStream(Collections.emptyList(), null, 0);
+        } else {
+            stream = new TableJsonStream(getDBAccess().getQueryHeaders(cursor), cursor, TableJsonStream.UNKNOWN_COUNT);
+            stream.setOnCloseListener(() -> runningQueries.finish(runningQuery));
+        }
+
+        return stream
+            .property("isCancelled", false)
+            .property("durationMs", SystemClock.elapsedRealtime() - startTime);
+    }
+
+    private String explainQuery(Map<String, List<String>> params) throws ResponseException {
         if (notContains(params, HtmlParams.DATA)) {
             throwEmptyParameterException(HtmlParams.DATA);
         }
 
         final String query = getStringValue(params, HtmlParams.DATA);
-        return serialize(getDBAccess().getTableDataByQuery(query));
+        if (!DatabaseManager.isSelectQuery(query)) {
+            throw new ResponseException(NanoHTTPD.Response.Status.BAD_REQUEST,
+                "only select queries can be explained");
+        }
+
+        final long startTime = SystemClock.elapsedRealtime();
+        final RunningQueries.RunningQuery runningQuery = startQuery(params);
+
+        QueryPlan plan;
+        try {
+            plan = getDBAccess().explainQuery(query, runningQuery.getSignal());
+        } catch (OperationCanceledException ex) {
+            plan = new QueryPlan();
+            plan.isCancelled = true;
+            plan.cancelReason = getCancelReason(runningQuery);
+            plan.durationMs = SystemClock.elapsedRealtime() - startTime;
+        } finally {
+            runningQueries.finish(runningQuery);
+        }
+
+        return serialize(plan);
     }
 
-    private String search(Map<String, List<String>> params) throws ResponseException {
+    private RunningQueries.RunningQuery startQuery(Map<String, List<String>> params) {
+        String queryId = getStringValue(params, DatabaseHtmlKey.QUERY_ID);
+        if (queryId == null) {
+            queryId = UUID.randomUUID().toString();
+        }
+        return runningQueries.start(queryId, internalSettings.getDatabaseQueryTimeout());
+    }
+
+    private String getCancelReason(RunningQueries.RunningQuery runningQuery) {
+        return runningQuery.isTimedOut() ? CANCEL_REASON_TIMEOUT : CANCEL_REASON_CANCELLED;
+    }
+
+    private String cancelQuery(Map<String, List<String>> params) throws ResponseException {
+        if (notContains(params, DatabaseHtmlKey.QUERY_ID)) {
+            throwEmptyParameterException(DatabaseHtmlKey.QUERY_ID);
+        }
+
+        runningQueries.cancel(getStringValue(params, DatabaseHtmlKey.QUERY_ID));
+        return EMPTY;
+    }
+
+    private JsonStream search(Map<String, List<String>> params) throws ResponseException {
         if (notContains(params, HtmlParams.DATA)) {
             throwEmptyParameterException(HtmlParams.DATA);
         }
@@ -200,7 +414,33 @@ public class DatabaseController extends Controller {
         final String tableName = getStringValue(params, HtmlParams.NAME);
         final String searchText = getStringValue(params, HtmlParams.DATA);
 
-        return serialize(getDBAccess().search(tableName, searchText));
+        final int limit = getIntValue(params, HtmlParams.SIZE, DEFAULT_SEARCH_LIMIT);
+
+        final long startTime = SystemClock.elapsedRealtime();
+        final RunningQueries.RunningQuery runningQuery = startQuery(params);
+
+        // the planner counts the rows it found, so the whole search has run once it returns
+        final SearchResult result;
+        try {
+            result = getDBAccess().search(tableName, searchText, limit, runningQuery.getSignal());
+        } catch (OperationCanceledException ex) {
+            return new TableJsonStream(Collections.emptyList(), null, 0)
+                .property("isCancelled", true)
+                .property("cancelReason", getCancelReason(runningQuery))
+                .property("searchDurationMs", SystemClock.elapsedRealtime() - startTime);
+        } finally {
+            runningQueries.finish(runningQuery);
+        }
+
+        return new TableJsonStream(
+            getDBAccess().getTableHeaders(tableName),
+            result.getCursor(),
+            TableJsonStream.UNKNOWN_COUNT
+        )
+            .property("isCancelled", false)
+            .property("searchStrategy", result.getStrategy())
+            .property("searchDurationMs", result.getDurationMs())
+            .property("isTruncated", result.isTruncated());
     }
 
     private DatabaseManager getDBAccess() {
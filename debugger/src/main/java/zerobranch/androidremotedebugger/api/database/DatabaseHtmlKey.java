@@ -25,4 +25,12 @@ interface DatabaseHtmlKey {
     String DROP_TABLE = "dropTable";
     String DROP_DATABASE = "dropDatabase";
     String SEARCH = "search";
+    String EXPORT = "export";
+    String APPROXIMATE_COUNT = "approximateCount";
+    String AFTER_KEY = "afterKey";
+    String BEFORE_KEY = "beforeKey";
+    String FROM_KEY = "fromKey";
+    String QUERY_ID = "queryId";
+    String CANCEL_QUERY = "cancelQuery";
+    String EXPLAIN_QUERY = "explainQuery";
 }
@@ -0,0 +1,290 @@
+/*
+ * Copyright 2020 Arman Sargsyan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zerobranch.androidremotedebugger.api.database;
+
+import android.database.Cursor;
+import android.os.CancellationSignal;
+import android.util.Base64;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import zerobranch.androidremotedebugger.http.WriterStream;
+import zerobranch.androidremotedebugger.source.managers.DatabaseManager;
+
+/**
+ * Writes all rows of a table or a select statement in an {@link ExportFormat}, {@link #CHUNK_ROWS} at a time.
+ * A select statement is run once and read through a single cursor, which is cancelled when the stream
+ * is closed. Tables with a rowid are walked by rowid in short-lived chunks, and only {@code WITHOUT ROWID}
+ * tables fall back to limit and offset. No chunk is read before the previous one has been sent,
+ * so an export stops as soon as the client disconnects and the stream is closed.
+ */
+final class ExportStream extends WriterStream {
+    private static final int CHUNK_ROWS = 256;
+    private static final String QUERY_TABLE_NAME = "export";
+    private static final String CSV_LINE_END = "\r\n";
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    private final DatabaseManager databaseManager;
+    private final ExportFormat format;
+    private final String tableName;
+    private final String selectQuery;
+    private final boolean isRowIdChunks;
+    private final CancellationSignal cancellationSignal = new CancellationSignal();
+    private Cursor queryCursor;
+    private JsonWriter jsonWriter;
+    private String[] columns;
+    private Long lastRowId;
+    private int offset;
+
+    private ExportStream(DatabaseManager databaseManager,
+                         ExportFormat format,
+                         String tableName,
+                         String selectQuery,
+                         boolean isRowIdChunks) {
+        this.databaseManager = databaseManager;
+        this.format = format;
+        this.tableName = tableName;
+        this.selectQuery = selectQuery;
+        this.isRowIdChunks = isRowIdChunks;
+    }
+
+    static ExportStream ofTable(DatabaseManager databaseManager, ExportFormat format, String tableName) {
+        return new ExportStream(databaseManager, format, tableName,
+                "SELECT * FROM " + quoteIdentifier(tableName), databaseManager.getTableSchema(tableName).hasRowId);
+    }
+
+    static ExportStream ofQuery(DatabaseManager databaseManager, ExportFormat format, String query) {
+        String selectQuery = query.trim();
+        while (selectQuery.endsWith(";")) {
+            selectQuery = selectQuery.substring(0, selectQuery.length() - 1).trim();
+        }
+        return new ExportStream(databaseManager, format, null, selectQuery, false);
+    }
+
+    @Override
+    protected boolean writeNext(Writer writer) throws IOException {
+        if (tableName == null) {
+            if (queryCursor == null) {
+                queryCursor = databaseManager.queryByCustomQuery(selectQuery, cancellationSignal);
+            }
+            return writeChunk(writer, queryCursor);
+        }
+
+        final Cursor cursor = isRowIdChunks
+                ? databaseManager.queryRowIdChunk(tableName, lastRowId, CHUNK_ROWS)
+                : databaseManager.queryOffsetChunk(selectQuery, offset, CHUNK_ROWS);
+
+        try {
+            return writeChunk(writer, cursor);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Override
+    protected void onClose() {
+        cancellationSignal.cancel();
+        if (queryCursor != null) {
+            queryCursor.close();
+        }
+    }
+
+    private boolean writeChunk(Writer writer, Cursor cursor) throws IOException {
+        final int firstColumn = isRowIdChunks ? 1 : 0;
+        if (columns == null) {
+            columns = new String[cursor.getColumnCount() - firstColumn];
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = cursor.getColumnName(i + firstColumn);
+            }
+            writeStart(writer);
+        }
+
+        int rowCount = 0;
+        while (rowCount < CHUNK_ROWS && !isClosed() && cursor.moveToNext()) {
+            writeRow(writer, cursor, firstColumn);
+            rowCount++;
+
+            if (isRowIdChunks) {
+                lastRowId = cursor.getLong(0);
+            }
+        }
+        offset += rowCount;
+
+        if (rowCount < CHUNK_ROWS) {
+            writeEnd(writer);
+            return false;
+        }
+        return true;
+    }
+
+    private void writeStart(Writer writer) throws IOException {
+        switch (format) {
+            case CSV:
+                for (int i = 0; i < columns.length; i++) {
+                    if (i > 0) {
+                        writer.write(',');
+                    }
+                    writeCsvValue(writer, columns[i]);
+                }
+                writer.write(CSV_LINE_END);
+                break;
+            case JSON_LINES:
+                jsonWriter = new JsonWriter(writer);
+                jsonWriter.setLenient(true);
+                break;
+            case SQL:
+                writer.write("BEGIN TRANSACTION;\n");
+                if (tableName != null) {
+                    writer.write(databaseManager.getTableSchema(tableName).sql);
+                    writer.write(";\n");
+                }
+                break;
+        }
+    }
+
+    private void writeEnd(Writer writer) throws IOException {
+        if (format == ExportFormat.SQL) {
+            writer.write("COMMIT;\n");
+        }
+    }
+
+    private void writeRow(Writer writer, Cursor cursor, int firstColumn) throws IOException {
+        switch (format) {
+            case CSV:
+                writeCsvRow(writer, cursor, firstColumn);
+                break;
+            case JSON_LINES:
+                writeJsonRow(writer, cursor, firstColumn);
+                break;
+            case SQL:
+                writeSqlRow(writer, cursor, firstColumn);
+                break;
+        }
+    }
+
+    private void writeCsvRow(Writer writer, Cursor cursor, int firstColumn) throws IOException {
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+
+            final int column = i + firstColumn;
+            final int type = cursor.getType(column);
+            if (type == Cursor.FIELD_TYPE_BLOB) {
+                writer.write(Base64.encodeToString(cursor.getBlob(column), Base64.NO_WRAP));
+            } else if (type != Cursor.FIELD_TYPE_NULL) {
+                writeCsvValue(writer, cursor.getString(column));
+            }
+        }
+        writer.write(CSV_LINE_END);
+    }
+
+    private void writeCsvValue(Writer writer, String value) throws IOException {
+        if (value.indexOf(',') == -1 && value.indexOf('"') == -1
+                && value.indexOf('\n') == -1 && value.indexOf('\r') == -1) {
+            writer.write(value);
+            return;
+        }
+
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private void writeJsonRow(Writer writer, Cursor cursor, int firstColumn) throws IOException {
+        jsonWriter.beginObject();
+        for (int i = 0; i < columns.length; i++) {
+            final int column = i + firstColumn;
+            jsonWriter.name(columns[i]);
+
+            switch (cursor.getType(column)) {
+                case Cursor.FIELD_TYPE_NULL:
+                    jsonWriter.nullValue();
+                    break;
+                case Cursor.FIELD_TYPE_INTEGER:
+                    jsonWriter.value(cursor.getLong(column));
+                    break;
+                case Cursor.FIELD_TYPE_FLOAT:
+                    jsonWriter.value(cursor.getDouble(column));
+                    break;
+                case Cursor.FIELD_TYPE_BLOB:
+                    jsonWriter.value(Base64.encodeToString(cursor.getBlob(column), Base64.NO_WRAP));
+                    break;
+                default:
+                    jsonWriter.value(cursor.getString(column));
+            }
+        }
+        jsonWriter.endObject();
+        jsonWriter.flush();
+        writer.write('\n');
+    }
+
+    private void writeSqlRow(Writer writer, Cursor cursor, int firstColumn) throws IOException {
+        writer.write("INSERT INTO ");
+        writer.write(quoteIdentifier(tableName != null ? tableName : QUERY_TABLE_NAME));
+        writer.write(" (");
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                writer.write(", ");
+            }
+            writer.write(quoteIdentifier(columns[i]));
+        }
+        writer.write(") VALUES (");
+
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                writer.write(", ");
+            }
+
+            final int column = i + firstColumn;
+            switch (cursor.getType(column)) {
+                case Cursor.FIELD_TYPE_NULL:
+                    writer.write("NULL");
+                    break;
+                case Cursor.FIELD_TYPE_INTEGER:
+                    writer.write(String.valueOf(cursor.getLong(column)));
+                    break;
+                case Cursor.FIELD_TYPE_FLOAT:
+                    writer.write(String.valueOf(cursor.getDouble(column)));
+                    break;
+                case Cursor.FIELD_TYPE_BLOB:
+                    writeHexLiteral(writer, cursor.getBlob(column));
+                    break;
+                default:
+                    writer.write('\'');
+                    writer.write(cursor.getString(column).replace("'", "''"));
+                    writer.write('\'');
+            }
+        }
+        writer.write(");\n");
+    }
+
+    private void writeHexLiteral(Writer writer, byte[] value) throws IOException {
+        writer.write("X'");
+        for (byte item : value) {
+            writer.write(HEX_DIGITS[(item >> 4) & 0x0f]);
+            writer.write(HEX_DIGITS[item & 0x0f]);
+        }
+        writer.write('\'');
+    }
+
+    private static String quoteIdentifier(String name) {
+        return "\"" + name.replace("\"", "\"\"") + "\"";
+    }
+}
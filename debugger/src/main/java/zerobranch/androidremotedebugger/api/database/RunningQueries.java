@@ -0,0 +1,101 @@
+/*
+ * Copyright 2020 Arman Sargsyan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zerobranch.androidremotedebugger.api.database;
+
+import android.os.CancellationSignal;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Console queries that are still executing, by the id the page gave them,
+ * so that they can be cancelled from another request or when they time out.
+ */
+final class RunningQueries {
+    private static final long KEEP_ALIVE_TIME = 30;
+
+    private final ConcurrentMap<String, RunningQuery> queries = new ConcurrentHashMap<>();
+    private final ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+        final Thread thread = new Thread(runnable, "AndroidRemoteDebugger-query-timeout");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    RunningQueries() {
+        timer.setRemoveOnCancelPolicy(true);
+        timer.setKeepAliveTime(KEEP_ALIVE_TIME, TimeUnit.SECONDS);
+        timer.allowCoreThreadTimeOut(true);
+    }
+
+    RunningQuery start(String queryId, long timeout) {
+        final RunningQuery query = new RunningQuery(queryId);
+        final RunningQuery previous = queries.put(queryId, query);
+        if (previous != null) {
+            previous.cancel(false);
+        }
+
+        query.timeout = timer.schedule(() -> query.cancel(true), timeout, TimeUnit.MILLISECONDS);
+        return query;
+    }
+
+    boolean cancel(String queryId) {
+        final RunningQuery query = queries.get(queryId);
+        if (query == null) {
+            return false;
+        }
+
+        query.cancel(false);
+        return true;
+    }
+
+    void finish(RunningQuery query) {
+        query.stopTimeout();
+        queries.remove(query.id, query);
+    }
+
+    static final class RunningQuery {
+        private final String id;
+        private final CancellationSignal signal = new CancellationSignal();
+        private volatile boolean isTimedOut;
+        private ScheduledFuture<?> timeout;
+
+        private RunningQuery(String id) {
+            this.id = id;
+        }
+
+        CancellationSignal getSignal() {
+            return signal;
+        }
+
+        boolean isTimedOut() {
+            return isTimedOut;
+        }
+
+        void stopTimeout() {
+            if (timeout != null) {
+                timeout.cancel(false);
+            }
+        }
+
+        private void cancel(boolean isTimedOut) {
+            this.isTimedOut = isTimedOut;
+            signal.cancel();
+        }
+    }
+}
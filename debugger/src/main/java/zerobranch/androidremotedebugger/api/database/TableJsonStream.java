@@ -0,0 +1,143 @@
+/*
+ * Copyright 2020 Arman Sargsyan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zerobranch.androidremotedebugger.api.database;
+
+import android.database.Cursor;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import zerobranch.androidremotedebugger.http.JsonStream;
+import zerobranch.androidremotedebugger.source.managers.DatabaseManager;
+import zerobranch.androidremotedebugger.source.models.Table;
+
+/**
+ * Writes a {@link Table} document straight from the cursor, one row per piece.
+ * When no count is given, the number of written rows is used. If the cursor returns
+ * {@link DatabaseManager#PAGE_KEY_COLUMN}, the keys of the first and the last row are
+ * added so that the neighbouring pages can be requested by key.
+ */
+final class TableJsonStream extends JsonStream {
+    static final int UNKNOWN_COUNT = -1;
+
+    private final List<Table.Header> headers;
+    private final Cursor cursor;
+    private final int count;
+    private final boolean isCountApproximate;
+    private final int[] columnIndexes;
+    private final int pageKeyIndex;
+    private final Map<String, Object> properties = new LinkedHashMap<>();
+    private boolean isStarted;
+    private int rowCount;
+    private String firstKey;
+    private String lastKey;
+
+    TableJsonStream(List<Table.Header> headers, Cursor cursor, int count) {
+        this(headers, cursor, count, false);
+    }
+
+    TableJsonStream(List<Table.Header> headers, Cursor cursor, int count, boolean isCountApproximate) {
+        this.headers = headers;
+        this.cursor = cursor;
+        this.count = count;
+        this.isCountApproximate = isCountApproximate;
+
+        columnIndexes = new int[headers.size()];
+        for (int i = 0; i < headers.size(); i++) {
+            columnIndexes[i] = cursor != null ? cursor.getColumnIndex(headers.get(i).name) : -1;
+        }
+        pageKeyIndex = cursor != null ? cursor.getColumnIndex(DatabaseManager.PAGE_KEY_COLUMN) : -1;
+    }
+
+    /**
+     * Adds a string, number or boolean property to the end of the document.
+     */
+    TableJsonStream property(String name, Object value) {
+        properties.put(name, value);
+        return this;
+    }
+
+    @Override
+    protected boolean writeNext(JsonWriter writer) throws IOException {
+        if (!isStarted) {
+            isStarted = true;
+            writeHeaders(writer);
+            writer.name("data").beginArray();
+            return true;
+        }
+
+        if (cursor != null && cursor.moveToNext()) {
+            writer.beginArray();
+            for (int columnIndex : columnIndexes) {
+                writer.value(columnIndex != -1 ? cursor.getString(columnIndex) : null);
+            }
+            writer.endArray();
+            rowCount++;
+
+            if (pageKeyIndex != -1) {
+                lastKey = cursor.getString(pageKeyIndex);
+                if (firstKey == null) {
+                    firstKey = lastKey;
+                }
+            }
+            return true;
+        }
+
+        writer.endArray();
+        writer.name("count").value(count != UNKNOWN_COUNT ? count : rowCount);
+        writer.name("isCountApproximate").value(isCountApproximate);
+        if (pageKeyIndex != -1) {
+            writer.name("firstKey").value(firstKey);
+            writer.name("lastKey").value(lastKey);
+        }
+        for (Map.Entry<String, Object> property : properties.entrySet()) {
+            writer.name(property.getKey());
+            if (property.getValue() instanceof Number) {
+                writer.value((Number) property.getValue());
+            } else if (property.getValue() instanceof Boolean) {
+                writer.value((Boolean) property.getValue());
+            } else {
+                writer.value(String.valueOf(property.getValue()));
+            }
+        }
+        writer.endObject();
+        return false;
+    }
+
+    @Override
+    protected void onClose() {
+        if (cursor != null) {
+            cursor.close();
+        }
+    }
+
+    private void writeHeaders(JsonWriter writer) throws IOException {
+        writer.beginObject();
+        writer.name("headers").beginArray();
+        for (Table.Header header : headers) {
+            writer.beginObject()
+                    .name("name").value(header.name)
+                    .name("type").value(header.type)
+                    .name("isMutable").value(header.isMutable)
+                    .endObject();
+        }
+        writer.endArray();
+    }
+}
@@ -18,20 +18,26 @@ package zerobranch.androidremotedebugger.api.home;
 import android.content.Context;
 
 import zerobranch.androidremotedebugger.api.base.Controller;
+import zerobranch.androidremotedebugger.http.BoundedAsyncRunner;
 import zerobranch.androidremotedebugger.http.Host;
 import zerobranch.androidremotedebugger.settings.InternalSettings;
+import zerobranch.androidremotedebugger.source.managers.ContinuousDBManager;
 import zerobranch.androidremotedebugger.source.models.Settings;
+import zerobranch.androidremotedebugger.source.models.Statistics;
 import zerobranch.androidremotedebugger.utils.FileUtils;
 
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 import fi.iki.elonen.NanoHTTPD;
 
 public class HomeController extends Controller {
+    private final BoundedAsyncRunner asyncRunner;
 
-    public HomeController(Context context, InternalSettings internalSettings) {
+    public HomeController(Context context, InternalSettings internalSettings, BoundedAsyncRunner asyncRunner) {
         super(context, internalSettings);
+        this.asyncRunner = asyncRunner;
     }
 
     @Override
@@ -40,6 +46,8 @@ public class HomeController extends Controller {
             return FileUtils.getTextFromAssets(context.getAssets(), Host.INDEX.getPath());
         } else if (params.containsKey(HomeKey.GET_SETTINGS)) {
             return getSettings();
+        } else if (params.containsKey(HomeKey.GET_STATISTICS)) {
+            return getStatistics();
         }
         return EMPTY;
     }
@@ -47,4 +55,32 @@ public class HomeController extends Controller {
     private String getSettings() {
         return serialize(new Settings(context.getPackageName()));
     }
+
+    private String getStatistics() {
+        final ContinuousDBManager dbManager = ContinuousDBManager.getInstance();
+        final Statistics statistics = new Statistics();
+        statistics.add("Stored logs", dbManager.getLogsCount());
+        statistics.add("Stored network logs", dbManager.getHttpLogsCount());
+        statistics.add("Storage size", formatSize(dbManager.getStorageSize()));
+        statistics.add("Evicted logs", dbManager.getEvictedLogsCount());
+        statistics.add("Dropped logs", dbManager.getDroppedLogsCount());
+        statistics.add("Evicted network logs", dbManager.getEvictedHttpLogsCount());
+        statistics.add("Pending network logs", dbManager.getPendingHttpLogsCount());
+        statistics.add("Dropped network logs", dbManager.getDroppedHttpLogsCount());
+        statistics.add("Server workers", asyncRunner.getPoolSize());
+        statistics.add("Active connections", asyncRunner.getActiveCount());
+        statistics.add("Streaming connections", asyncRunner.getStreamCount());
+        statistics.add("Queued connections", asyncRunner.getQueuedCount());
+        statistics.add("Rejected connections", asyncRunner.getRejectedCount());
+        return serialize(statistics);
+    }
+
+    private String formatSize(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        } else if (bytes < 1024 * 1024) {
+            return String.format(Locale.US, "%.1f KB", bytes / 1024.0);
+        }
+        return String.format(Locale.US, "%.1f MB", bytes / (1024.0 * 1024.0));
+    }
 }
@@ -17,4 +17,5 @@ package zerobranch.androidremotedebugger.api.home;
 
 interface HomeKey {
     String GET_SETTINGS = "getSettings";
+    String GET_STATISTICS = "getStatistics";
 }
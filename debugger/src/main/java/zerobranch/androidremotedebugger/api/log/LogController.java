@@ -19,23 +19,35 @@ import android.content.Context;
 import android.text.TextUtils;
 
 import com.google.gson.JsonSyntaxException;
+import com.google.gson.reflect.TypeToken;
 import zerobranch.androidremotedebugger.api.base.Controller;
+import zerobranch.androidremotedebugger.api.base.LiveTail;
+import zerobranch.androidremotedebugger.http.EventSink;
+import zerobranch.androidremotedebugger.http.EventStream;
 import zerobranch.androidremotedebugger.http.Host;
+import zerobranch.androidremotedebugger.http.HttpResponse;
 import zerobranch.androidremotedebugger.settings.InternalSettings;
+import zerobranch.androidremotedebugger.source.local.LogFilter;
 import zerobranch.androidremotedebugger.source.local.LogLevel;
 import zerobranch.androidremotedebugger.source.managers.ContinuousDBManager;
 import zerobranch.androidremotedebugger.source.models.LogModel;
 import zerobranch.androidremotedebugger.utils.FileUtils;
 
+import java.lang.reflect.Type;
 import java.util.List;
 import java.util.Map;
 
 import fi.iki.elonen.NanoHTTPD;
 
+import static zerobranch.androidremotedebugger.source.local.Constants.EVENT_STREAM_CAPACITY;
+import static zerobranch.androidremotedebugger.source.local.Constants.EVENT_STREAM_HEARTBEAT_INTERVAL;
 import static zerobranch.androidremotedebugger.source.local.Constants.LIMIT_LOGS_PACKS;
 
 public final class LogController extends Controller {
-    private static final int UNLIMITED_OFFSET = -1;
+    private static final long NO_ID = -1;
+    private static final String SUBSTRING_SEARCH_MODE = "substring";
+    private static final String EVENT_LOGS = "logs";
+    private static final Type LOG_LIST_TYPE = new TypeToken<List<LogModel>>() {}.getType();
 
     public LogController(Context context, InternalSettings internalSettings) {
         super(context, internalSettings);
@@ -59,24 +71,87 @@ public final class LogController extends Controller {
         return EMPTY;
     }
 
-    private String getLogs(Map<String, List<String>> params) {
-        int offset = getIntValue(params, LogHtmlKey.LOGS_OFFSET, UNLIMITED_OFFSET);
-        String primaryTag = getStringValue(params, LogHtmlKey.LOGS_TAG);
-        String primaryLevel = getStringValue(params, LogHtmlKey.LOGS_LEVEL);
-        String primarySearch = getStringValue(params, LogHtmlKey.LOGS_SEARCH);
-
-        if (LogLevel.VERBOSE.name().equalsIgnoreCase(primaryLevel)) {
-            primaryLevel = null;
+    @Override
+    public NanoHTTPD.Response executeStream(Map<String, List<String>> params) {
+        if (params == null || !params.containsKey(LogHtmlKey.STREAM_LOGS)) {
+            return null;
         }
 
+        final EventStream stream = new EventStream(EVENT_STREAM_CAPACITY, EVENT_STREAM_HEARTBEAT_INTERVAL);
+        stream.setOnCloseListener(subscribe(params, stream));
+        return HttpResponse.newEventStreamResponse(stream);
+    }
+
+    @Override
+    public Runnable subscribe(Map<String, List<String>> params, EventSink sink) {
+        final long afterId = getLongValue(params, LogHtmlKey.LOGS_AFTER_ID, NO_ID);
+        final String tag = getStringValue(params, LogHtmlKey.LOGS_TAG);
+        final String level = getLevel(params);
+        final String search = getStringValue(params, LogHtmlKey.LOGS_SEARCH);
+        final boolean isSubstringSearch = isSubstringSearch(params);
+        final LogFilter filter = new LogFilter(level, tag, search, isSubstringSearch);
+
+        final LiveTail<LogModel> tail = new LiveTail<LogModel>(sink, EVENT_LOGS, afterId, LIMIT_LOGS_PACKS) {
+            @Override
+            protected List<LogModel> getPage(long afterId) {
+                return getDataBase().getLogsByFilter(afterId, NO_ID, LIMIT_LOGS_PACKS,
+                        level, tag, search, isSubstringSearch);
+            }
+
+            @Override
+            protected boolean matches(LogModel log) {
+                return filter.matches(log);
+            }
+
+            @Override
+            protected long getId(LogModel log) {
+                return log.id;
+            }
+
+            @Override
+            protected String serialize(List<LogModel> logs, boolean isShared) {
+                if (isShared && internalSettings.isEnabledJsonPrettyPrint()) {
+                    // the models are shared with other subscribers, so they are copied before formatting
+                    return serializeLogs(deserialize(LogController.this.serialize(logs), LOG_LIST_TYPE));
+                }
+                return serializeLogs(logs);
+            }
+
+            @Override
+            public void unsubscribe() {
+                getDataBase().unsubscribeLogs(this);
+            }
+        };
+
+        getDataBase().subscribeLogs(tail);
+        sink.setBacklog(tail);
+        return tail::unsubscribe;
+    }
+
+    private String getLogs(Map<String, List<String>> params) {
         List<LogModel> logs = getDataBase().getLogsByFilter(
-                offset,
+                getLongValue(params, LogHtmlKey.LOGS_AFTER_ID, NO_ID),
+                getLongValue(params, LogHtmlKey.LOGS_BEFORE_ID, NO_ID),
                 LIMIT_LOGS_PACKS,
-                primaryLevel,
-                primaryTag,
-                primarySearch
+                getLevel(params),
+                getStringValue(params, LogHtmlKey.LOGS_TAG),
+                getStringValue(params, LogHtmlKey.LOGS_SEARCH),
+                isSubstringSearch(params)
         );
 
+        return serializeLogs(logs);
+    }
+
+    private String getLevel(Map<String, List<String>> params) {
+        String level = getStringValue(params, LogHtmlKey.LOGS_LEVEL);
+        return LogLevel.VERBOSE.name().equalsIgnoreCase(level) ? null : level;
+    }
+
+    private boolean isSubstringSearch(Map<String, List<String>> params) {
+        return SUBSTRING_SEARCH_MODE.equalsIgnoreCase(getStringValue(params, LogHtmlKey.LOGS_SEARCH_MODE));
+    }
+
+    private String serializeLogs(List<LogModel> logs) {
         if (internalSettings.isEnabledJsonPrettyPrint()) {
             for (LogModel log : logs) {
                 if (TextUtils.isEmpty(log.message)) {
@@ -17,9 +17,12 @@ package zerobranch.androidremotedebugger.api.log;
 
 interface LogHtmlKey {
     String GET_LOGS = "getLogs";
+    String STREAM_LOGS = "streamLogs";
     String LOGS_TAG = "logsTag";
     String LOGS_SEARCH = "logsSearch";
     String LOGS_LEVEL = "logsLevel";
-    String LOGS_OFFSET = "logsOffset";
+    String LOGS_SEARCH_MODE = "logsSearchMode";
+    String LOGS_AFTER_ID = "logsAfterId";
+    String LOGS_BEFORE_ID = "logsBeforeId";
     String CLEAR_ALL_LOGS = "clearAllLogs";
 }
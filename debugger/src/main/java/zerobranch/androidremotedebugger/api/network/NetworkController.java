@@ -19,23 +19,34 @@ import android.content.Context;
 import android.text.TextUtils;
 
 import com.google.gson.JsonSyntaxException;
+import com.google.gson.reflect.TypeToken;
 import zerobranch.androidremotedebugger.api.base.Controller;
+import zerobranch.androidremotedebugger.api.base.LiveTail;
+import zerobranch.androidremotedebugger.http.EventSink;
+import zerobranch.androidremotedebugger.http.EventStream;
 import zerobranch.androidremotedebugger.http.Host;
+import zerobranch.androidremotedebugger.http.HttpResponse;
 import zerobranch.androidremotedebugger.settings.InternalSettings;
+import zerobranch.androidremotedebugger.source.local.HttpLogFilter;
 import zerobranch.androidremotedebugger.source.local.StatusCodeFilter;
 import zerobranch.androidremotedebugger.source.managers.ContinuousDBManager;
 import zerobranch.androidremotedebugger.source.models.httplog.HttpLogModel;
 import zerobranch.androidremotedebugger.utils.FileUtils;
 
+import java.lang.reflect.Type;
 import java.util.List;
 import java.util.Map;
 
 import fi.iki.elonen.NanoHTTPD;
 
+import static zerobranch.androidremotedebugger.source.local.Constants.EVENT_STREAM_CAPACITY;
+import static zerobranch.androidremotedebugger.source.local.Constants.EVENT_STREAM_HEARTBEAT_INTERVAL;
 import static zerobranch.androidremotedebugger.source.local.Constants.LIMIT_HTTP_LOGS_PACKS;
 
 public final class NetworkController extends Controller {
-    private static final int UNLIMITED_OFFSET = -1;
+    private static final long NO_ID = -1;
+    private static final String EVENT_LOGS = "logs";
+    private static final Type HTTP_LOG_LIST_TYPE = new TypeToken<List<HttpLogModel>>() {}.getType();
 
     public NetworkController(Context context, InternalSettings internalSettings) {
         super(context, internalSettings);
@@ -49,6 +60,8 @@ public final class NetworkController extends Controller {
             return getLogs(params);
         } else if (params.containsKey(NetworkHtmlKey.CLEAR_ALL_LOGS)) {
             return clearAllLogs();
+        } else if (params.containsKey(NetworkHtmlKey.GET_ENDPOINTS)) {
+            return serialize(getDataBase().getEndpointSummaries());
         }
 
         return EMPTY;
@@ -59,15 +72,86 @@ public final class NetworkController extends Controller {
         return EMPTY;
     }
 
+    @Override
+    public NanoHTTPD.Response executeStream(Map<String, List<String>> params) {
+        if (params == null || !params.containsKey(NetworkHtmlKey.STREAM_LOGS)) {
+            return null;
+        }
+
+        final EventStream stream = new EventStream(EVENT_STREAM_CAPACITY, EVENT_STREAM_HEARTBEAT_INTERVAL);
+        stream.setOnCloseListener(subscribe(params, stream));
+        return HttpResponse.newEventStreamResponse(stream);
+    }
+
+    @Override
+    public Runnable subscribe(Map<String, List<String>> params, EventSink sink) {
+        final long afterId = getLongValue(params, NetworkHtmlKey.AFTER_ID, NO_ID);
+        final StatusCodeFilter statusCodeFilter = new StatusCodeFilter(getStringValue(params, NetworkHtmlKey.STATUS_CODE));
+        final boolean isOnlyErrors = getBooleanValue(params, NetworkHtmlKey.IS_ONLY_ERRORS, false);
+        final long minDuration = getMinDuration(params);
+        final long minBodySize = getMinBodySize(params);
+        final String search = getStringValue(params, NetworkHtmlKey.SEARCH);
+        final HttpLogFilter filter = new HttpLogFilter(statusCodeFilter, isOnlyErrors, minDuration, minBodySize, search);
+
+        final LiveTail<HttpLogModel> tail = new LiveTail<HttpLogModel>(sink, EVENT_LOGS, afterId, LIMIT_HTTP_LOGS_PACKS) {
+            @Override
+            protected List<HttpLogModel> getPage(long afterId) {
+                return getDataBase().getHttpLogs(afterId, NO_ID, LIMIT_HTTP_LOGS_PACKS,
+                        statusCodeFilter, isOnlyErrors, minDuration, minBodySize, search);
+            }
+
+            @Override
+            protected boolean matches(HttpLogModel log) {
+                return filter.matches(log);
+            }
+
+            @Override
+            protected long getId(HttpLogModel log) {
+                return log.id;
+            }
+
+            @Override
+            protected String serialize(List<HttpLogModel> logs, boolean isShared) {
+                if (isShared && internalSettings.isEnabledJsonPrettyPrint()) {
+                    // the models are shared with other subscribers, so they are copied before formatting
+                    return serializeLogs(deserialize(NetworkController.this.serialize(logs), HTTP_LOG_LIST_TYPE));
+                }
+                return serializeLogs(logs);
+            }
+
+            @Override
+            public void unsubscribe() {
+                getDataBase().unsubscribeHttpLogs(this);
+            }
+        };
+
+        getDataBase().subscribeHttpLogs(tail);
+        sink.setBacklog(tail);
+        return tail::unsubscribe;
+    }
+
     private String getLogs(Map<String, List<String>> params) {
-        int offset = getIntValue(params, NetworkHtmlKey.OFFSET, UNLIMITED_OFFSET);
+        long afterId = getLongValue(params, NetworkHtmlKey.AFTER_ID, NO_ID);
+        long beforeId = getLongValue(params, NetworkHtmlKey.BEFORE_ID, NO_ID);
         String statusCode = getStringValue(params, NetworkHtmlKey.STATUS_CODE);
         boolean isOnlyErrors = getBooleanValue(params, NetworkHtmlKey.IS_ONLY_ERRORS, false);
         String search = getStringValue(params, NetworkHtmlKey.SEARCH);
 
-        List<HttpLogModel> logs = getDataBase().getHttpLogs(offset, LIMIT_HTTP_LOGS_PACKS,
-                new StatusCodeFilter(statusCode), isOnlyErrors, search);
+        List<HttpLogModel> logs = getDataBase().getHttpLogs(afterId, beforeId, LIMIT_HTTP_LOGS_PACKS,
+                new StatusCodeFilter(statusCode), isOnlyErrors, getMinDuration(params), getMinBodySize(params), search);
+
+        return serializeLogs(logs);
+    }
+
+    private long getMinDuration(Map<String, List<String>> params) {
+        return getIntValue(params, NetworkHtmlKey.MIN_DURATION, 0);
+    }
+
+    private long getMinBodySize(Map<String, List<String>> params) {
+        return getIntValue(params, NetworkHtmlKey.MIN_BODY_SIZE, 0) * 1024L;
+    }
 
+    private String serializeLogs(List<HttpLogModel> logs) {
         if (internalSettings.isEnabledJsonPrettyPrint()) {
             for (HttpLogModel log : logs) {
                 if (TextUtils.isEmpty(log.body)) {
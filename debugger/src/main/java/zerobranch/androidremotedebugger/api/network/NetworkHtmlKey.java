@@ -17,10 +17,15 @@ package zerobranch.androidremotedebugger.api.network;
 
 interface NetworkHtmlKey {
     String GET_LOGS = "getLogs";
+    String STREAM_LOGS = "streamLogs";
     String CLEAR_ALL_LOGS = "clearAllLogs";
+    String GET_ENDPOINTS = "getEndpoints";
 
-    String OFFSET = "offset";
+    String AFTER_ID = "afterId";
+    String BEFORE_ID = "beforeId";
     String STATUS_CODE = "statusCode";
     String IS_ONLY_ERRORS = "isOnlyErrors";
+    String MIN_DURATION = "minDuration";
+    String MIN_BODY_SIZE = "minBodySize";
     String SEARCH = "search";
 }
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2020 Arman Sargsyan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zerobranch.androidremotedebugger.http;
+
+import android.content.res.AssetManager;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps the bytes of the assets served by {@link Host} in memory, optionally together with
+ * their gzip encoding. The least recently used assets are evicted once the cached bytes
+ * exceed {@code maxBytes}; a {@code maxBytes} of 0 disables caching.
+ */
+public final class AssetCache {
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final AssetManager assetManager;
+    private final long maxBytes;
+    private final boolean isPreCompressionEnabled;
+    private final Map<String, Asset> assets = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes;
+
+    public AssetCache(AssetManager assetManager, long maxBytes, boolean isPreCompressionEnabled) {
+        this.assetManager = assetManager;
+        this.maxBytes = maxBytes;
+        this.isPreCompressionEnabled = isPreCompressionEnabled;
+    }
+
+    public Asset get(Host host) throws IOException {
+        synchronized (this) {
+            final Asset asset = assets.get(host.getPath());
+            if (asset != null) {
+                return asset;
+            }
+        }
+
+        final byte[] data = read(host.getPath());
+        if (data.length > maxBytes) {
+            return new Asset(data, null);
+        }
+
+        final Asset asset = new Asset(data, isPreCompressionEnabled && !host.isPng() ? gzip(data) : null);
+        put(host.getPath(), asset);
+        return asset;
+    }
+
+    public void preload() {
+        for (Host host : Host.values()) {
+            try {
+                get(host);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    public synchronized long getCachedBytes() {
+        return cachedBytes;
+    }
+
+    private synchronized void put(String path, Asset asset) {
+        final Asset previous = assets.put(path, asset);
+        if (previous != null) {
+            cachedBytes -= previous.getSize();
+        }
+        cachedBytes += asset.getSize();
+
+        final Iterator<Asset> iterator = assets.values().iterator();
+        while (cachedBytes > maxBytes && iterator.hasNext()) {
+            cachedBytes -= iterator.next().getSize();
+            iterator.remove();
+        }
+    }
+
+    private byte[] read(String path) throws IOException {
+        try (InputStream inputStream = assetManager.open(path)) {
+            final ByteArrayOutputStream outputStream = new ByteArrayOutputStream(
+                    Math.max(inputStream.available(), BUFFER_SIZE));
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            int count;
+            while ((count = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, count);
+            }
+            return outputStream.toByteArray();
+        }
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream(data.length / 4);
+        try (GZIPOutputStream gzipStream = new GZIPOutputStream(outputStream)) {
+            gzipStream.write(data);
+        }
+
+        final byte[] compressed = outputStream.toByteArray();
+        return compressed.length < data.length ? compressed : null;
+    }
+
+    public static final class Asset {
+        private final byte[] data;
+        private final byte[] gzipData;
+
+        private Asset(byte[] data, byte[] gzipData) {
+            this.data = data;
+            this.gzipData = gzipData;
+        }
+
+        public byte[] getData() {
+            return data;
+        }
+
+        /**
+         * @return the gzip encoded data, or {@code null} if it was not pre-compressed
+         */
+        public byte[] getGzipData() {
+            return gzipData;
+        }
+
+        private long getSize() {
+            return data.length + (gzipData != null ? gzipData.length : 0);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2020 Arman Sargsyan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zerobranch.androidremotedebugger.http;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import fi.iki.elonen.NanoHTTPD;
+
+/**
+ * Runs client connections on a fixed number of worker threads instead of a thread per connection.
+ * Connections that find all workers busy wait in a bounded queue; once it is full
+ * they are handed to the {@link RejectionHandler}.
+ * <p>
+ * A connection that turns into a live stream keeps its worker until it is closed. It is moved out
+ * of the pool with {@link #startStreaming()}, which adds a worker for as long as the stream lasts,
+ * so open pages never use up the workers left for ordinary requests.
+ */
+public final class BoundedAsyncRunner implements NanoHTTPD.AsyncRunner {
+    private static final long KEEP_ALIVE_TIME = 30;
+
+    private final ThreadPoolExecutor executor;
+    private final RejectionHandler rejectionHandler;
+    private final List<NanoHTTPD.ClientHandler> running = Collections.synchronizedList(new ArrayList<>());
+    private final Set<NanoHTTPD.ClientHandler> streaming = new HashSet<>();
+    private final ThreadLocal<NanoHTTPD.ClientHandler> currentClientHandler = new ThreadLocal<>();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final int poolSize;
+    private final int streamLimit;
+
+    public BoundedAsyncRunner(int poolSize, int queueLimit, int streamLimit, RejectionHandler rejectionHandler) {
+        this.poolSize = poolSize;
+        this.streamLimit = streamLimit;
+        this.rejectionHandler = rejectionHandler;
+        this.executor = new ThreadPoolExecutor(
+                poolSize,
+                poolSize,
+                KEEP_ALIVE_TIME,
+                TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueLimit),
+                new WorkerThreadFactory()
+        );
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public void exec(NanoHTTPD.ClientHandler clientHandler) {
+        running.add(clientHandler);
+
+        try {
+            executor.execute(() -> {
+                currentClientHandler.set(clientHandler);
+                try {
+                    clientHandler.run();
+                } finally {
+                    currentClientHandler.remove();
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            running.remove(clientHandler);
+            rejectedCount.incrementAndGet();
+            rejectionHandler.onRejected(clientHandler);
+        }
+    }
+
+    @Override
+    public void closed(NanoHTTPD.ClientHandler clientHandler) {
+        running.remove(clientHandler);
+        stopStreaming(clientHandler);
+    }
+
+    /**
+     * Marks the connection served on the calling worker as a live stream until it is closed.
+     * The pool grows by one worker for it, so the stream does not count against the pool size.
+     *
+     * @return false if the stream limit is reached, the connection must then be answered right away
+     */
+    public boolean startStreaming() {
+        final NanoHTTPD.ClientHandler clientHandler = currentClientHandler.get();
+        if (clientHandler == null) {
+            return true;
+        }
+
+        synchronized (streaming) {
+            if (streaming.contains(clientHandler)) {
+                return true;
+            } else if (streaming.size() >= streamLimit) {
+                return false;
+            }
+
+            streaming.add(clientHandler);
+            // the maximum grows first, the executor refuses a core size above it
+            executor.setMaximumPoolSize(executor.getMaximumPoolSize() + 1);
+            executor.setCorePoolSize(executor.getCorePoolSize() + 1);
+            return true;
+        }
+    }
+
+    private void stopStreaming(NanoHTTPD.ClientHandler clientHandler) {
+        synchronized (streaming) {
+            if (streaming.remove(clientHandler)) {
+                executor.setCorePoolSize(executor.getCorePoolSize() - 1);
+                executor.setMaximumPoolSize(executor.getMaximumPoolSize() - 1);
+            }
+        }
+    }
+
+    /**
+     * Closes the open connections only. NanoHTTPD calls this on every stop,
+     * and the workers must still be there if the server is started again.
+     */
+    @Override
+    public void closeAll() {
+        for (NanoHTTPD.ClientHandler clientHandler : new ArrayList<>(running)) {
+            clientHandler.close();
+        }
+    }
+
+    /**
+     * Stops the workers for good, once the server that owns this runner is thrown away.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Runs work handed off by a connection on the same workers.
+     *
+     * @throws RejectedExecutionException if all workers are busy and the queue is full
+     */
+    public void execute(Runnable task) {
+        executor.execute(task);
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    public int getStreamCount() {
+        synchronized (streaming) {
+            return streaming.size();
+        }
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public int getQueuedCount() {
+        return executor.getQueue().size();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    public interface RejectionHandler {
+        void onRejected(NanoHTTPD.ClientHandler clientHandler);
+    }
+
+    private static final class WorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            final Thread thread = new Thread(runnable, "AndroidRemoteDebugger-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
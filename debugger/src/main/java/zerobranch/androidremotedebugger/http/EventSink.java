@@ -0,0 +1,40 @@
+/*
+ * Copyright 2020 Arman Sargsyan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zerobranch.androidremotedebugger.http;
+
+/**
+ * Destination of live events: an SSE response or a WebSocket subscription.
+ */
+public interface EventSink {
+    boolean send(String event, String data);
+
+    boolean isClosed();
+
+    /**
+     * Sets events that go out before anything else. The sink pulls them one part at a time,
+     * on its own thread and only while it has room, so a long backlog never overflows it.
+     */
+    void setBacklog(Backlog backlog);
+
+    interface Backlog {
+        /**
+         * Sends the next part of the backlog.
+         *
+         * @return {@code false} once nothing is left
+         */
+        boolean sendNext();
+    }
+}
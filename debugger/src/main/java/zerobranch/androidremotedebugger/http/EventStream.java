@@ -0,0 +1,149 @@
+/*
+ * Copyright 2020 Arman Sargsyan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zerobranch.androidremotedebugger.http;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Body of a {@code text/event-stream} response. Events are queued by producers
+ * and written out by the server thread that reads this stream; while nothing
+ * is queued the reader sleeps and only wakes up to send a heartbeat comment.
+ * A backlog is pulled by the reader whenever the queue runs empty.
+ * A reader that falls too far behind gets the stream closed and is expected
+ * to reconnect and catch up through the regular endpoint.
+ */
+public final class EventStream extends InputStream implements EventSink {
+    private static final byte[] HEARTBEAT = ": heartbeat\n\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] END_OF_STREAM = new byte[0];
+
+    private final BlockingQueue<byte[]> events;
+    private final long heartbeatInterval;
+    private Runnable onCloseListener;
+    private volatile Backlog backlog;
+    private volatile boolean isClosed;
+    private byte[] current;
+    private int position;
+
+    public EventStream(int capacity, long heartbeatInterval) {
+        this.events = new ArrayBlockingQueue<>(capacity);
+        this.heartbeatInterval = heartbeatInterval;
+    }
+
+    public void setOnCloseListener(Runnable onCloseListener) {
+        this.onCloseListener = onCloseListener;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return isClosed;
+    }
+
+    @Override
+    public void setBacklog(Backlog backlog) {
+        this.backlog = backlog;
+    }
+
+    @Override
+    public boolean send(String event, String data) {
+        if (isClosed) {
+            return false;
+        }
+
+        final StringBuilder message = new StringBuilder()
+                .append("event: ")
+                .append(event)
+                .append('\n');
+
+        for (String line : data.split("\n", -1)) {
+            message.append("data: ").append(line).append('\n');
+        }
+        message.append('\n');
+
+        if (!events.offer(message.toString().getBytes(StandardCharsets.UTF_8))) {
+            close();
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int read() {
+        final byte[] single = new byte[1];
+        return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) {
+        if (length == 0) {
+            return 0;
+        }
+
+        if (current == null || position == current.length) {
+            current = nextChunk();
+            position = 0;
+
+            if (current == END_OF_STREAM) {
+                return -1;
+            }
+        }
+
+        final int count = Math.min(length, current.length - position);
+        System.arraycopy(current, position, buffer, offset, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public void close() {
+        if (isClosed) {
+            return;
+        }
+
+        isClosed = true;
+        events.clear();
+        events.offer(END_OF_STREAM);
+
+        if (onCloseListener != null) {
+            onCloseListener.run();
+        }
+    }
+
+    private byte[] nextChunk() {
+        Backlog current = backlog;
+        while (current != null && events.isEmpty() && !isClosed) {
+            if (!current.sendNext()) {
+                backlog = null;
+            }
+            current = backlog;
+        }
+
+        if (isClosed && events.isEmpty()) {
+            return END_OF_STREAM;
+        }
+
+        try {
+            final byte[] chunk = events.poll(heartbeatInterval, TimeUnit.MILLISECONDS);
+            return chunk == null ? HEARTBEAT : chunk;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return END_OF_STREAM;
+        }
+    }
+}
@@ -21,11 +21,14 @@ public enum Host {
     LOGGING("/logging", "logging.html"),
     SHARED_REFERENCES("/shared-preferences", "shared-preferences.html"),
     NETWORK("/network", "network.html"),
+    ENDPOINTS("/endpoints", "endpoints.html"),
     INDEX_STYLE("/css/index.css", "css/index.css"),
     DATABASE_STYLE("/css/database.css", "css/database.css"),
     LOGGING_STYLE("/css/logging.css", "css/logging.css"),
     NETWORK_STYLE("/css/network.css", "css/network.css"),
-    SHARED_REFERENCES_STYLE("/css/shared-preferences.css", "css/shared-preferences.css");
+    ENDPOINTS_STYLE("/css/endpoints.css", "css/endpoints.css"),
+    SHARED_REFERENCES_STYLE("/css/shared-preferences.css", "css/shared-preferences.css"),
+    SOCKET_SCRIPT("/js/socket.js", "js/socket.js");
 
     private final String host;
     private final String path;
@@ -48,10 +51,29 @@ public enum Host {
         return null;
     }
 
+    public String getMimeType() {
+        if (isCss()) {
+            return "text/css";
+        } else if (isJs()) {
+            return "text/javascript";
+        } else if (isPng()) {
+            return "image/png";
+        }
+        return "text/html";
+    }
+
+    public boolean isHtml() {
+        return path.endsWith(".html");
+    }
+
     public boolean isCss() {
         return path.endsWith(".css");
     }
 
+    public boolean isJs() {
+        return path.endsWith(".js");
+    }
+
     public boolean isPng() {
         return path.endsWith(".png");
     }
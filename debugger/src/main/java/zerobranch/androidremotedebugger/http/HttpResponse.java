@@ -15,27 +15,59 @@
  */
 package zerobranch.androidremotedebugger.http;
 
-import java.io.IOException;
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 
 import fi.iki.elonen.NanoHTTPD;
 
 public class HttpResponse extends NanoHTTPD.Response {
+    public static final String MIME_EVENT_STREAM = "text/event-stream";
+    public static final String MIME_JSON = "application/json";
 
     public HttpResponse(IStatus status, String mimeType, InputStream data, long totalBytes) {
         super(status, mimeType, data, totalBytes);
     }
 
-    public static NanoHTTPD.Response newCssResponse(InputStream data) {
-        return new HttpResponse(NanoHTTPD.Response.Status.OK, "text/css", data, 0);
+    public static NanoHTTPD.Response newAssetResponse(String mimeType, byte[] data, boolean isGzipped) {
+        NanoHTTPD.Response response = NanoHTTPD.newFixedLengthResponse(
+                Status.OK, mimeType, new ByteArrayInputStream(data), data.length);
+        if (isGzipped) {
+            response.addHeader("Content-Encoding", "gzip");
+        }
+        return response;
     }
 
-    public static NanoHTTPD.Response newPngResponse(InputStream data) throws IOException {
-        return NanoHTTPD.newFixedLengthResponse(NanoHTTPD.Response.Status.OK, "image/jpeg", data, data.available());
+    public static NanoHTTPD.Response newJsonResponse(String body) {
+        NanoHTTPD.Response response = NanoHTTPD.newFixedLengthResponse(Status.OK, MIME_JSON, body);
+        response.addHeader("Cache-Control", "no-store");
+        return response;
     }
 
-    public static NanoHTTPD.Response newFixedLengthResponse(String body) {
-        return NanoHTTPD.newFixedLengthResponse(body);
+    public static NanoHTTPD.Response newJsonStreamResponse(JsonStream stream) {
+        NanoHTTPD.Response response = NanoHTTPD.newChunkedResponse(Status.OK, MIME_JSON, stream);
+        response.addHeader("Cache-Control", "no-store");
+        return response;
+    }
+
+    public static NanoHTTPD.Response newDownloadResponse(String mimeType, String fileName, WriterStream stream) {
+        NanoHTTPD.Response response = NanoHTTPD.newChunkedResponse(Status.OK, mimeType, stream);
+        response.addHeader("Content-Disposition",
+                "attachment; filename=\"" + fileName.replaceAll("[^A-Za-z0-9._-]", "_") + "\"");
+        response.addHeader("Cache-Control", "no-store");
+        return response;
+    }
+
+    public static NanoHTTPD.Response newNotModifiedResponse(String eTag) {
+        NanoHTTPD.Response response = NanoHTTPD.newFixedLengthResponse(Status.NOT_MODIFIED, null, null);
+        response.addHeader("ETag", eTag);
+        response.addHeader("Cache-Control", "no-cache");
+        return response;
+    }
+
+    public static NanoHTTPD.Response newEventStreamResponse(EventStream stream) {
+        NanoHTTPD.Response response = NanoHTTPD.newChunkedResponse(Status.OK, MIME_EVENT_STREAM, stream);
+        response.addHeader("Cache-Control", "no-cache");
+        return response;
     }
 
     public static NanoHTTPD.Response newErrorResponse(Status status, String message) {
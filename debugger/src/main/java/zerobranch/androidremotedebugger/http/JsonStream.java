@@ -0,0 +1,59 @@
+/*
+ * Copyright 2020 Arman Sargsyan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zerobranch.androidremotedebugger.http;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+
+/**
+ * {@link WriterStream} whose body is a JSON document written with a {@link JsonWriter}.
+ */
+public abstract class JsonStream extends WriterStream {
+    private JsonWriter jsonWriter;
+
+    /**
+     * Writes the next piece of the document.
+     *
+     * @return {@code false} once the document is complete
+     */
+    protected abstract boolean writeNext(JsonWriter writer) throws IOException;
+
+    @Override
+    protected final boolean writeNext(Writer writer) throws IOException {
+        if (jsonWriter == null) {
+            jsonWriter = new JsonWriter(writer);
+        }
+        return writeNext(jsonWriter);
+    }
+
+    /**
+     * Writes the whole document into a String, for callers that cannot consume a stream.
+     */
+    public String toJson() throws IOException {
+        final StringWriter stringWriter = new StringWriter();
+        try (JsonWriter writer = new JsonWriter(stringWriter)) {
+            while (writeNext(writer)) {
+                // the document is written piece by piece
+            }
+        } finally {
+            close();
+        }
+        return stringWriter.toString();
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2020 Arman Sargsyan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zerobranch.androidremotedebugger.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Body of a response that is produced while it is read. Subclasses write the
+ * body piece by piece in {@link #writeNext(Writer)}, which is called only when
+ * the previous pieces have been read, so memory use does not grow with the body size
+ * and nothing more is produced once the client has gone away and the stream is closed.
+ */
+public abstract class WriterStream extends InputStream {
+    private static final int CHUNK_SIZE = 8 * 1024;
+
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(CHUNK_SIZE * 2);
+    private final Writer writer = new OutputStreamWriter(buffer, StandardCharsets.UTF_8);
+    private Runnable onCloseListener;
+    private boolean isFinished;
+    private boolean isClosed;
+    private byte[] current;
+    private int position;
+
+    /**
+     * Writes the next piece of the body.
+     *
+     * @return {@code false} once the body is complete
+     */
+    protected abstract boolean writeNext(Writer writer) throws IOException;
+
+    /**
+     * Releases the resources the body is read from.
+     */
+    protected void onClose() {
+    }
+
+    public void setOnCloseListener(Runnable onCloseListener) {
+        this.onCloseListener = onCloseListener;
+    }
+
+    public boolean isClosed() {
+        return isClosed;
+    }
+
+    @Override
+    public int read() throws IOException {
+        final byte[] single = new byte[1];
+        return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] target, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+
+        while (current == null || position == current.length) {
+            if (isFinished || isClosed) {
+                return -1;
+            }
+            fillChunk();
+        }
+
+        final int count = Math.min(length, current.length - position);
+        System.arraycopy(current, position, target, offset, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public void close() {
+        if (isClosed) {
+            return;
+        }
+
+        isClosed = true;
+        onClose();
+
+        if (onCloseListener != null) {
+            onCloseListener.run();
+        }
+    }
+
+    private void fillChunk() throws IOException {
+        buffer.reset();
+        try {
+            while (!isFinished && buffer.size() < CHUNK_SIZE) {
+                isFinished = !writeNext(writer);
+                writer.flush();
+            }
+        } catch (RuntimeException ex) {
+            throw new IOException(ex);
+        }
+
+        current = buffer.toByteArray();
+        position = 0;
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2020 Arman Sargsyan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zerobranch.androidremotedebugger.logging;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+import okio.Source;
+
+/**
+ * Hands the original body to the app unchanged while copying at most
+ * {@code maxCaptureSize} bytes of it aside as they are read. The copy is reported
+ * once, when the app reaches the end of the body, closes it or fails to read it,
+ * so the body is never read ahead of the app or held in memory in full.
+ */
+final class CapturingResponseBody extends ResponseBody {
+    private final ResponseBody delegate;
+    private final BufferedSource source;
+
+    CapturingResponseBody(ResponseBody delegate, long maxCaptureSize, Callback callback) {
+        this.delegate = delegate;
+        this.source = Okio.buffer(new CapturingSource(delegate.source(), maxCaptureSize, callback));
+    }
+
+    @Nullable
+    @Override
+    public MediaType contentType() {
+        return delegate.contentType();
+    }
+
+    @Override
+    public long contentLength() {
+        return delegate.contentLength();
+    }
+
+    @NotNull
+    @Override
+    public BufferedSource source() {
+        return source;
+    }
+
+    interface Callback {
+        /**
+         * @param captured  the first bytes of the body, as they came from the network
+         * @param byteCount the number of bytes the app has read
+         */
+        void onCaptured(Buffer captured, long byteCount);
+    }
+
+    private static final class CapturingSource extends ForwardingSource {
+        private final Buffer captured = new Buffer();
+        private final long maxCaptureSize;
+        private final Callback callback;
+        private long byteCount;
+        private boolean isReported;
+
+        CapturingSource(Source delegate, long maxCaptureSize, Callback callback) {
+            super(delegate);
+            this.maxCaptureSize = maxCaptureSize;
+            this.callback = callback;
+        }
+
+        @Override
+        public long read(@NotNull Buffer sink, long count) throws IOException {
+            final long read;
+            try {
+                read = super.read(sink, count);
+            } catch (IOException ex) {
+                report();
+                throw ex;
+            }
+
+            if (read == -1) {
+                report();
+                return -1;
+            }
+
+            byteCount += read;
+            final long captureCount = Math.min(read, maxCaptureSize - captured.size());
+            if (captureCount > 0) {
+                sink.copyTo(captured, sink.size() - read, captureCount);
+            }
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                report();
+            }
+        }
+
+        private void report() {
+            if (isReported) {
+                return;
+            }
+
+            isReported = true;
+            callback.onCaptured(captured, byteCount);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2020 Arman Sargsyan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zerobranch.androidremotedebugger.logging;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+
+import okio.Buffer;
+import okio.ForwardingSink;
+import okio.HashingSink;
+import okio.Okio;
+
+/**
+ * Discards what is written to it except for the first {@code maxCaptureSize} bytes,
+ * while counting and hashing everything, so a body of any size can be described
+ * without being held in memory.
+ */
+final class CapturingSink extends ForwardingSink {
+    private final Buffer captured = new Buffer();
+    private final HashingSink hashingSink;
+    private final long maxCaptureSize;
+    private long byteCount;
+
+    CapturingSink(long maxCaptureSize) {
+        this(HashingSink.sha256(Okio.blackhole()), maxCaptureSize);
+    }
+
+    private CapturingSink(HashingSink hashingSink, long maxCaptureSize) {
+        super(hashingSink);
+        this.hashingSink = hashingSink;
+        this.maxCaptureSize = maxCaptureSize;
+    }
+
+    @Override
+    public void write(@NotNull Buffer source, long count) throws IOException {
+        final long captureCount = Math.min(count, maxCaptureSize - captured.size());
+        if (captureCount > 0) {
+            source.copyTo(captured, 0, captureCount);
+        }
+
+        byteCount += count;
+        super.write(source, count);
+    }
+
+    Buffer getCaptured() {
+        return captured;
+    }
+
+    long getByteCount() {
+        return byteCount;
+    }
+
+    boolean isTruncated() {
+        return byteCount > maxCaptureSize;
+    }
+
+    String getSha256() {
+        return hashingSink.hash().hex();
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2020 Arman Sargsyan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zerobranch.androidremotedebugger.logging;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import zerobranch.androidremotedebugger.source.models.httplog.HttpLogTimings;
+
+/**
+ * Records the address a call was sent to and when each phase of the call started
+ * and ended, for {@link NetLoggingInterceptor} to attach to the response it logs.
+ * Install it with {@code eventListenerFactory(NetLoggingEventListener.FACTORY)}.
+ * Without it an interceptor added with {@code addInterceptor} cannot see the address,
+ * and no interceptor can see the timings.
+ */
+public class NetLoggingEventListener extends EventListener {
+    public static final EventListener.Factory FACTORY = call -> new NetLoggingEventListener();
+
+    private static final int CALL_START = 0;
+    private static final int DNS_START = 1;
+    private static final int DNS_END = 2;
+    private static final int CONNECT_START = 3;
+    private static final int CONNECT_END = 4;
+    private static final int SECURE_CONNECT_START = 5;
+    private static final int SECURE_CONNECT_END = 6;
+    private static final int REQUEST_HEADERS_START = 7;
+    private static final int REQUEST_HEADERS_END = 8;
+    private static final int REQUEST_BODY_START = 9;
+    private static final int REQUEST_BODY_END = 10;
+    private static final int RESPONSE_HEADERS_START = 11;
+    private static final int RESPONSE_HEADERS_END = 12;
+    private static final int RESPONSE_BODY_START = 13;
+    private static final int RESPONSE_BODY_END = 14;
+    private static final int CALL_END = 15;
+    private static final int EVENT_COUNT = 16;
+
+    private static final Map<Call, NetLoggingEventListener> listeners = new ConcurrentHashMap<>();
+    private final long[] marks = new long[EVENT_COUNT];
+    private volatile InetSocketAddress socketAddress;
+
+    static NetLoggingEventListener get(Call call) {
+        return listeners.get(call);
+    }
+
+    InetSocketAddress getSocketAddress() {
+        return socketAddress;
+    }
+
+    /**
+     * Returns the phases that have both started and ended so far, relative to the start of the call.
+     */
+    synchronized HttpLogTimings getTimings() {
+        final HttpLogTimings timings = new HttpLogTimings();
+        addPhase(timings, "dns", DNS_START, DNS_END);
+        addPhase(timings, "connect", CONNECT_START, CONNECT_END);
+        addPhase(timings, "secure connect", SECURE_CONNECT_START, SECURE_CONNECT_END);
+        addPhase(timings, "request headers", REQUEST_HEADERS_START, REQUEST_HEADERS_END);
+        addPhase(timings, "request body", REQUEST_BODY_START, REQUEST_BODY_END);
+        addPhase(timings, "wait", marks[REQUEST_BODY_END] > marks[REQUEST_HEADERS_END]
+                ? REQUEST_BODY_END : REQUEST_HEADERS_END, RESPONSE_HEADERS_START);
+        addPhase(timings, "response headers", RESPONSE_HEADERS_START, RESPONSE_HEADERS_END);
+        addPhase(timings, "response body", RESPONSE_BODY_START, RESPONSE_BODY_END);
+
+        long lastMark = marks[CALL_START];
+        for (long mark : marks) {
+            if (mark != 0 && mark - lastMark > 0) {
+                lastMark = mark;
+            }
+        }
+        timings.totalMs = toMillis(lastMark - marks[CALL_START]);
+        return timings;
+    }
+
+    @Override
+    public void callStart(@NotNull Call call) {
+        listeners.put(call, this);
+        markFirst(CALL_START);
+    }
+
+    @Override
+    public void dnsStart(@NotNull Call call, @NotNull String domainName) {
+        markFirst(DNS_START);
+    }
+
+    @Override
+    public void dnsEnd(@NotNull Call call, @NotNull String domainName, @NotNull List<InetAddress> inetAddressList) {
+        mark(DNS_END);
+    }
+
+    @Override
+    public void connectStart(@NotNull Call call, @NotNull InetSocketAddress inetSocketAddress, @NotNull Proxy proxy) {
+        markFirst(CONNECT_START);
+    }
+
+    @Override
+    public void secureConnectStart(@NotNull Call call) {
+        markFirst(SECURE_CONNECT_START);
+    }
+
+    @Override
+    public void secureConnectEnd(@NotNull Call call, @Nullable Handshake handshake) {
+        mark(SECURE_CONNECT_END);
+    }
+
+    @Override
+    public void connectEnd(@NotNull Call call, @NotNull InetSocketAddress inetSocketAddress,
+                           @NotNull Proxy proxy, @Nullable Protocol protocol) {
+        mark(CONNECT_END);
+    }
+
+    @Override
+    public void connectFailed(@NotNull Call call, @NotNull InetSocketAddress inetSocketAddress,
+                              @NotNull Proxy proxy, @Nullable Protocol protocol, @NotNull IOException ioe) {
+        mark(CONNECT_END);
+    }
+
+    @Override
+    public void connectionAcquired(@NotNull Call call, @NotNull Connection connection) {
+        socketAddress = connection.route().socketAddress();
+    }
+
+    // a call that follows redirects sends several requests, the phases below describe the last one
+
+    @Override
+    public void requestHeadersStart(@NotNull Call call) {
+        mark(REQUEST_HEADERS_START);
+    }
+
+    @Override
+    public void requestHeadersEnd(@NotNull Call call, @NotNull Request request) {
+        mark(REQUEST_HEADERS_END);
+    }
+
+    @Override
+    public void requestBodyStart(@NotNull Call call) {
+        mark(REQUEST_BODY_START);
+    }
+
+    @Override
+    public void requestBodyEnd(@NotNull Call call, long byteCount) {
+        mark(REQUEST_BODY_END);
+    }
+
+    @Override
+    public void responseHeadersStart(@NotNull Call call) {
+        mark(RESPONSE_HEADERS_START);
+    }
+
+    @Override
+    public void responseHeadersEnd(@NotNull Call call, @NotNull Response response) {
+        mark(RESPONSE_HEADERS_END);
+    }
+
+    @Override
+    public void responseBodyStart(@NotNull Call call) {
+        mark(RESPONSE_BODY_START);
+    }
+
+    @Override
+    public void responseBodyEnd(@NotNull Call call, long byteCount) {
+        mark(RESPONSE_BODY_END);
+    }
+
+    @Override
+    public void callEnd(@NotNull Call call) {
+        mark(CALL_END);
+        listeners.remove(call);
+    }
+
+    @Override
+    public void callFailed(@NotNull Call call, @NotNull IOException ioe) {
+        mark(CALL_END);
+        listeners.remove(call);
+    }
+
+    private synchronized void mark(int event) {
+        marks[event] = System.nanoTime();
+    }
+
+    private synchronized void markFirst(int event) {
+        if (marks[event] == 0) {
+            marks[event] = System.nanoTime();
+        }
+    }
+
+    private void addPhase(HttpLogTimings timings, String name, int startEvent, int endEvent) {
+        final long start = marks[startEvent];
+        final long end = marks[endEvent];
+        if (start == 0 || end < start) {
+            return;
+        }
+
+        final HttpLogTimings.Phase phase = new HttpLogTimings.Phase();
+        phase.name = name;
+        phase.startMs = toMillis(start - marks[CALL_START]);
+        phase.durationMs = toMillis(end - start);
+        timings.phases.add(phase);
+    }
+
+    private long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+}
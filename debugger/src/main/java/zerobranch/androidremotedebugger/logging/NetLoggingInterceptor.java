@@ -21,12 +21,13 @@ import org.jetbrains.annotations.NotNull;
 
 import java.io.IOException;
 import java.net.InetAddress;
-import java.net.URL;
+import java.net.InetSocketAddress;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import okhttp3.Connection;
 import okhttp3.Headers;
 import okhttp3.Interceptor;
 import okhttp3.MediaType;
@@ -36,8 +37,9 @@ import okhttp3.Response;
 import okhttp3.ResponseBody;
 import okhttp3.internal.http.HttpHeaders;
 import okio.Buffer;
-import okio.BufferedSource;
+import okio.BufferedSink;
 import okio.GzipSource;
+import okio.Okio;
 import zerobranch.androidremotedebugger.AndroidRemoteDebugger;
 import zerobranch.androidremotedebugger.source.managers.ContinuousDBManager;
 import zerobranch.androidremotedebugger.source.mapper.HttpLogRequestMapper;
@@ -54,6 +56,7 @@ public class NetLoggingInterceptor implements Interceptor {
     private HttpLogger httpLogger;
 
     private static final int MAX_CONTENT_LENGTH = 200000;
+    private static final String NOT_CAPTURED_BODY = "One-shot body, not captured";
 
     public NetLoggingInterceptor() {
     }
@@ -65,7 +68,7 @@ public class NetLoggingInterceptor implements Interceptor {
     @NotNull
     @Override
     public Response intercept(@NotNull Chain chain) throws IOException {
-        if (!AndroidRemoteDebugger.isEnable()) {
+        if (!isEnabled()) {
             return chain.proceed(chain.request());
         }
 
@@ -79,7 +82,7 @@ public class NetLoggingInterceptor implements Interceptor {
 
         logRequest.method = request.method();
         logRequest.url = request.url().toString();
-        logRequest.port = String.valueOf(request.url().port());
+        logRequest.port = request.url().port();
 
         Headers headers = request.headers();
         logRequest.headers = new ArrayList<>();
@@ -103,23 +106,29 @@ public class NetLoggingInterceptor implements Interceptor {
                 }
             }
 
-            long requestBodyContentLength = requestBody.contentLength();
-            logRequest.bodySize = String.valueOf(requestBodyContentLength);
+            logRequest.bodySize = requestBody.contentLength();
 
-            Buffer buffer = new Buffer();
-            requestBody.writeTo(buffer);
+            if (requestBody.isDuplex() || requestBody.isOneShot()) {
+                // such a body can only be written once, and that has to be OkHttp sending it
+                logRequest.body = NOT_CAPTURED_BODY;
+            } else {
+                CapturingSink capturingSink = new CapturingSink(MAX_CONTENT_LENGTH);
+                BufferedSink sink = Okio.buffer(capturingSink);
+                requestBody.writeTo(sink);
+                sink.flush();
 
-            Charset charset = UTF8;
-            MediaType contentType = requestBody.contentType();
-            if (contentType != null) {
-                charset = contentType.charset(UTF8);
-            }
+                logRequest.bodySize = capturingSink.getByteCount();
+
+                Charset charset = UTF8;
+                MediaType contentType = requestBody.contentType();
+                if (contentType != null) {
+                    charset = contentType.charset(UTF8);
+                }
 
-            if (charset != null) {
-                if (requestBodyContentLength > MAX_CONTENT_LENGTH) {
-                    logRequest.body = "Too Big!!!";
-                } else {
-                    logRequest.body = buffer.readString(charset);
+                if (capturingSink.isTruncated()) {
+                    logRequest.body = capturingSink.getByteCount() + " bytes, SHA-256: " + capturingSink.getSha256();
+                } else if (charset != null) {
+                    logRequest.body = capturingSink.getCaptured().readString(charset);
                 }
             }
         }
@@ -127,19 +136,21 @@ public class NetLoggingInterceptor implements Interceptor {
         logRequest.queryId = String.valueOf(queryNumber.incrementAndGet());
         logResponse.queryId = logRequest.queryId;
 
-        try {
-            InetAddress address = InetAddress.getByName(new URL(request.url().toString()).getHost());
-            logRequest.ip = address.getHostAddress();
-        } catch (Exception ignored) {
-            // ignore
-        } finally {
-            HttpLogModel logModel = requestMapper.map(logRequest);
-            if (AndroidRemoteDebugger.isEnable()) {
-                logRequest.id = getDataBase().addHttpLog(logModel);
-                onReceiveLog(logModel);
-            }
+        // looked up before the call can end, which is when the listener forgets it
+        final NetLoggingEventListener listener = NetLoggingEventListener.get(chain.call());
+
+        // only a network interceptor sees the connection, an application interceptor
+        // learns the address from NetLoggingEventListener once the call is connected
+        Connection connection = chain.connection();
+        if (connection != null) {
+            InetSocketAddress socketAddress = connection.route().socketAddress();
+            logRequest.ip = getHostAddress(socketAddress);
+            logRequest.port = socketAddress.getPort();
         }
 
+        HttpLogModel requestLogModel = requestMapper.map(logRequest);
+        addLog(requestLogModel);
+
         logResponse.time = System.currentTimeMillis();
         logResponse.method = logRequest.method;
         logResponse.port = logRequest.port;
@@ -153,19 +164,19 @@ public class NetLoggingInterceptor implements Interceptor {
             response = chain.proceed(request);
         } catch (Exception e) {
             logResponse.errorMessage = e.getMessage();
+            setSocketAddress(logResponse, listener);
+            setTimings(logResponse, listener);
 
             HttpLogModel logModel = responseMapper.map(logResponse);
-            if (AndroidRemoteDebugger.isEnable()) {
-                getDataBase().addHttpLog(logModel);
-                onReceiveLog(logModel);
-            }
+            addLog(logModel);
 
             throw e;
         }
 
         long endTime = System.currentTimeMillis();
 
-        logResponse.duration = String.valueOf(endTime - startTime);
+        setSocketAddress(logResponse, listener);
+        logResponse.duration = endTime - startTime;
         logResponse.time = endTime;
         logResponse.code = response.code();
         logResponse.message = response.message();
@@ -183,46 +194,114 @@ public class NetLoggingInterceptor implements Interceptor {
         }
 
         ResponseBody responseBody = response.body();
-        if (HttpHeaders.promisesBody(response) && responseBody != null) {
-            long responseContentLength = responseBody.contentLength();
+        if (!HttpHeaders.promisesBody(response) || responseBody == null) {
+            setTimings(logResponse, listener);
+            HttpLogModel logModel = responseMapper.map(logResponse);
+            addLog(logModel);
+            return response;
+        }
 
-            BufferedSource source = responseBody.source();
-            source.request(Long.MAX_VALUE);
-            Buffer buffer = source.getBuffer();
+        // the body is logged once the app has read it, reading it here would delay and buffer the app's download
+        final boolean isGzipped = "gzip".equalsIgnoreCase(responseHeaders.get("Content-Encoding"));
+        final MediaType contentType = responseBody.contentType();
+        ResponseBody capturingBody = new CapturingResponseBody(responseBody, MAX_CONTENT_LENGTH, (captured, byteCount) -> {
+            setResponseBody(logResponse, captured, byteCount, contentType, isGzipped);
+            setTimings(logResponse, listener);
 
-            if ("gzip".equalsIgnoreCase(responseHeaders.get("Content-Encoding"))) {
-                try (GzipSource gzippedResponseBody = new GzipSource(buffer.clone())) {
-                    buffer = new Buffer();
-                    buffer.writeAll(gzippedResponseBody);
-                }
-            }
+            HttpLogModel logModel = responseMapper.map(logResponse);
+            addLog(logModel);
+        });
+
+        return response.newBuilder().body(capturingBody).build();
+    }
+
+    private void setSocketAddress(HttpLogResponse logResponse, NetLoggingEventListener listener) {
+        if (logResponse.ip != null) {
+            return;
+        }
+
+        InetSocketAddress socketAddress = listener != null ? listener.getSocketAddress() : null;
+        if (socketAddress != null) {
+            logResponse.ip = getHostAddress(socketAddress);
+            logResponse.port = socketAddress.getPort();
+        }
+    }
+
+    private void setTimings(HttpLogResponse logResponse, NetLoggingEventListener listener) {
+        if (listener != null) {
+            logResponse.timings = listener.getTimings();
+        }
+    }
+
+    // the address is only read from the socket address, looking it up would resolve the host again
+    private String getHostAddress(InetSocketAddress socketAddress) {
+        InetAddress address = socketAddress.getAddress();
+        return address != null ? address.getHostAddress() : socketAddress.getHostString();
+    }
+
+    private void setResponseBody(HttpLogResponse logResponse,
+                                 Buffer captured,
+                                 long byteCount,
+                                 MediaType contentType,
+                                 boolean isGzipped) {
+        if (byteCount == 0) {
+            return;
+        }
+
+        logResponse.bodySize = byteCount;
+
+        Charset charset = UTF8;
+        if (contentType != null) {
+            charset = contentType.charset(UTF8);
+        }
 
-            Charset charset = UTF8;
-            MediaType contentType = responseBody.contentType();
-            if (contentType != null) {
-                charset = contentType.charset(UTF8);
+        if (charset != null) {
+            final boolean isCaptureTruncated = captured.size() < byteCount;
+            Buffer buffer = isGzipped ? gunzip(captured) : captured;
+
+            // an inflated body is read one byte past the limit to tell whether there is more of it
+            final boolean isTruncated = isCaptureTruncated || buffer.size() > MAX_CONTENT_LENGTH;
+            if (buffer.size() > MAX_CONTENT_LENGTH) {
+                Buffer limited = new Buffer();
+                buffer.copyTo(limited, 0, MAX_CONTENT_LENGTH);
+                buffer = limited;
             }
 
-            if (buffer.size() != 0) {
-                logResponse.bodySize = String.valueOf(buffer.size());
+            logResponse.body = buffer.readString(charset);
+            if (isTruncated) {
+                logResponse.body += "\n\n... truncated, " + byteCount + " bytes received";
             }
+        }
+    }
 
-            if (responseContentLength != 0 && charset != null) {
-                if (responseContentLength > MAX_CONTENT_LENGTH) {
-                    logResponse.body = "Too Big!!!";
-                } else {
-                    logResponse.body = buffer.clone().readString(charset);
-                }
+    // the capture may end in the middle of the gzip stream, so whatever could be inflated before that is kept
+    private Buffer gunzip(Buffer captured) {
+        final long maxSize = MAX_CONTENT_LENGTH + 1;
+        Buffer buffer = new Buffer();
+        try (GzipSource gzipSource = new GzipSource(captured)) {
+            while (buffer.size() < maxSize && gzipSource.read(buffer, maxSize - buffer.size()) != -1) {
+                // inflated piece by piece up to the limit
             }
+        } catch (IOException ignored) {
+            // the captured part ends before the gzip stream does
         }
+        return buffer;
+    }
 
-        HttpLogModel logModel = responseMapper.map(logResponse);
-        if (AndroidRemoteDebugger.isEnable()) {
-            getDataBase().addHttpLog(logModel);
+    // package-private so that tests can run the interceptor without an initialized debugger
+    boolean isEnabled() {
+        return AndroidRemoteDebugger.isEnable();
+    }
+
+    void addHttpLog(HttpLogModel logModel) {
+        getDataBase().addHttpLog(logModel);
+    }
+
+    private void addLog(HttpLogModel logModel) {
+        if (isEnabled()) {
+            addHttpLog(logModel);
             onReceiveLog(logModel);
         }
-
-        return response;
     }
 
     private void onReceiveLog(HttpLogModel logModel) {
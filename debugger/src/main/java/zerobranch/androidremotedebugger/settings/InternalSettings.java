@@ -18,10 +18,32 @@ package zerobranch.androidremotedebugger.settings;
 public class InternalSettings {
     private final boolean enabledInternalLogging;
     private final boolean enabledJsonPrettyPrint;
+    private final int serverPoolSize;
+    private final int serverQueueLimit;
+    private final int serverStreamLimit;
+    private final long assetCacheMaxBytes;
+    private final boolean enabledAssetPreload;
+    private final boolean enabledAssetPreCompression;
+    private final long databaseQueryTimeout;
 
-    public InternalSettings(boolean enabledInternalLogging, boolean enabledJsonPrettyPrint) {
+    public InternalSettings(boolean enabledInternalLogging,
+                            boolean enabledJsonPrettyPrint,
+                            int serverPoolSize,
+                            int serverQueueLimit,
+                            int serverStreamLimit,
+                            long assetCacheMaxBytes,
+                            boolean enabledAssetPreload,
+                            boolean enabledAssetPreCompression,
+                            long databaseQueryTimeout) {
         this.enabledInternalLogging = enabledInternalLogging;
         this.enabledJsonPrettyPrint = enabledJsonPrettyPrint;
+        this.serverPoolSize = serverPoolSize;
+        this.serverQueueLimit = serverQueueLimit;
+        this.serverStreamLimit = serverStreamLimit;
+        this.assetCacheMaxBytes = assetCacheMaxBytes;
+        this.enabledAssetPreload = enabledAssetPreload;
+        this.enabledAssetPreCompression = enabledAssetPreCompression;
+        this.databaseQueryTimeout = databaseQueryTimeout;
     }
 
     public boolean isEnabledInternalLogging() {
@@ -31,4 +53,32 @@ public class InternalSettings {
     public boolean isEnabledJsonPrettyPrint() {
         return enabledJsonPrettyPrint;
     }
+
+    public int getServerPoolSize() {
+        return serverPoolSize;
+    }
+
+    public int getServerQueueLimit() {
+        return serverQueueLimit;
+    }
+
+    public int getServerStreamLimit() {
+        return serverStreamLimit;
+    }
+
+    public long getAssetCacheMaxBytes() {
+        return assetCacheMaxBytes;
+    }
+
+    public boolean isEnabledAssetPreload() {
+        return enabledAssetPreload;
+    }
+
+    public boolean isEnabledAssetPreCompression() {
+        return enabledAssetPreCompression;
+    }
+
+    public long getDatabaseQueryTimeout() {
+        return databaseQueryTimeout;
+    }
 }
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2020 Arman Sargsyan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zerobranch.androidremotedebugger.settings;
+
+public class StorageSettings {
+    private final int logBatchSize;
+    private final long logFlushInterval;
+    private final int httpLogQueueCapacity;
+    private final BackpressurePolicy httpLogBackpressurePolicy;
+    private final int retentionMaxRows;
+    private final long retentionMaxBytes;
+    private final long retentionMaxAge;
+
+    public StorageSettings(int logBatchSize,
+                           long logFlushInterval,
+                           int httpLogQueueCapacity,
+                           BackpressurePolicy httpLogBackpressurePolicy,
+                           int retentionMaxRows,
+                           long retentionMaxBytes,
+                           long retentionMaxAge) {
+        this.logBatchSize = logBatchSize;
+        this.logFlushInterval = logFlushInterval;
+        this.httpLogQueueCapacity = httpLogQueueCapacity;
+        this.httpLogBackpressurePolicy = httpLogBackpressurePolicy;
+        this.retentionMaxRows = retentionMaxRows;
+        this.retentionMaxBytes = retentionMaxBytes;
+        this.retentionMaxAge = retentionMaxAge;
+    }
+
+    public int getLogBatchSize() {
+        return logBatchSize;
+    }
+
+    public long getLogFlushInterval() {
+        return logFlushInterval;
+    }
+
+    public int getHttpLogQueueCapacity() {
+        return httpLogQueueCapacity;
+    }
+
+    public BackpressurePolicy getHttpLogBackpressurePolicy() {
+        return httpLogBackpressurePolicy;
+    }
+
+    public int getRetentionMaxRows() {
+        return retentionMaxRows;
+    }
+
+    public long getRetentionMaxBytes() {
+        return retentionMaxBytes;
+    }
+
+    public long getRetentionMaxAge() {
+        return retentionMaxAge;
+    }
+
+    public boolean isRetentionEnabled() {
+        return retentionMaxRows > 0 || retentionMaxBytes > 0 || retentionMaxAge > 0;
+    }
+}
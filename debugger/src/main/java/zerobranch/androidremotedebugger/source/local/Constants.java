@@ -22,4 +22,6 @@ public interface Constants {
     SimpleDateFormat defaultDateFormat = new SimpleDateFormat("HH:mm:ss.SSS", Locale.ENGLISH);
     int LIMIT_HTTP_LOGS_PACKS = 500;
     int LIMIT_LOGS_PACKS = 1000;
+    int EVENT_STREAM_CAPACITY = 256;
+    long EVENT_STREAM_HEARTBEAT_INTERVAL = 15000;
 }
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2020 Arman Sargsyan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zerobranch.androidremotedebugger.source.local;
+
+import android.text.TextUtils;
+
+import java.util.Locale;
+
+import zerobranch.androidremotedebugger.source.models.httplog.HttpLogModel;
+
+/**
+ * In-memory counterpart of the network log query in {@code HttpLogRepository},
+ * used to filter network logs pushed to live subscribers.
+ */
+public class HttpLogFilter {
+    private final StatusCodeFilter statusCodeFilter;
+    private final boolean isOnlyErrors;
+    private final long minDuration;
+    private final long minBodySize;
+    private final String search;
+
+    public HttpLogFilter(StatusCodeFilter statusCodeFilter,
+                         boolean isOnlyErrors,
+                         long minDuration,
+                         long minBodySize,
+                         String search) {
+        this.statusCodeFilter = statusCodeFilter;
+        this.isOnlyErrors = isOnlyErrors;
+        this.minDuration = minDuration;
+        this.minBodySize = minBodySize;
+        this.search = TextUtils.isEmpty(search) ? null : search.toLowerCase(Locale.ROOT);
+    }
+
+    public boolean matches(HttpLogModel log) {
+        if (isOnlyErrors) {
+            if (log.errorMessage == null && (log.code == null || log.code < 400 || log.code > 599)) {
+                return false;
+            }
+        } else if (statusCodeFilter != null && statusCodeFilter.isExistCondition()) {
+            if (log.code == null
+                    || log.code < statusCodeFilter.minStatusCode
+                    || log.code > statusCodeFilter.maxStatusCode) {
+                return false;
+            }
+        }
+
+        if (minDuration > 0 && (log.durationMs == null || log.durationMs < minDuration)) {
+            return false;
+        }
+
+        if (minBodySize > 0 && (log.bodySizeBytes == null || log.bodySizeBytes < minBodySize)) {
+            return false;
+        }
+
+        return search == null || matchesSearch(log);
+    }
+
+    private boolean matchesSearch(HttpLogModel log) {
+        final String[] values = new String[]{
+                log.queryId,
+                log.method,
+                log.code == null ? null : String.valueOf(log.code),
+                log.message,
+                log.fullStatus,
+                log.fullIpAddress,
+                log.requestContentType,
+                log.port,
+                log.ip,
+                log.url,
+                log.bodySizeBytes == null ? null : String.valueOf(log.bodySizeBytes),
+                log.durationMs == null ? null : String.valueOf(log.durationMs),
+                log.body,
+                log.errorMessage
+        };
+
+        for (String value : values) {
+            if (contains(value)) {
+                return true;
+            }
+        }
+
+        if (log.headers != null) {
+            for (String header : log.headers) {
+                if (contains(header)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean contains(String value) {
+        return value != null && value.toLowerCase(Locale.ROOT).contains(search);
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2020 Arman Sargsyan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zerobranch.androidremotedebugger.source.local;
+
+import android.text.TextUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import zerobranch.androidremotedebugger.source.models.LogModel;
+
+/**
+ * In-memory counterpart of the log query in {@code LogRepository},
+ * used to filter logs pushed to live subscribers.
+ */
+public class LogFilter {
+    private final String level;
+    private final String tag;
+    private final String search;
+    private final List<String> searchTokens;
+    private final boolean isSubstringSearch;
+
+    public LogFilter(String level, String tag, String search, boolean isSubstringSearch) {
+        this.level = lowerCase(level);
+        this.tag = lowerCase(tag);
+        this.search = lowerCase(search);
+        this.searchTokens = TextUtils.isEmpty(search) ? new ArrayList<>() : tokenize(search);
+        this.isSubstringSearch = isSubstringSearch || searchTokens.isEmpty();
+    }
+
+    /**
+     * Splits text the way the FTS4 {@code simple} tokenizer does: ASCII letters and digits
+     * and every non-ASCII character form words, everything else (including {@code _})
+     * separates them, and only ASCII letters are folded to lower case.
+     */
+    public static List<String> tokenize(String text) {
+        final List<String> tokens = new ArrayList<>();
+        final StringBuilder token = new StringBuilder();
+
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+
+            if (c >= 'A' && c <= 'Z') {
+                token.append((char) (c + ('a' - 'A')));
+            } else if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c >= 0x80) {
+                token.append(c);
+            } else if (token.length() != 0) {
+                tokens.add(token.toString());
+                token.setLength(0);
+            }
+        }
+
+        if (token.length() != 0) {
+            tokens.add(token.toString());
+        }
+        return tokens;
+    }
+
+    public boolean matches(LogModel log) {
+        if (level != null && !contains(log.level, level)) {
+            return false;
+        }
+
+        if (tag != null && (log.tag == null || !log.tag.toLowerCase(Locale.ROOT).startsWith(tag))) {
+            return false;
+        }
+
+        if (search == null) {
+            return true;
+        }
+
+        if (isSubstringSearch) {
+            return contains(log.level, search)
+                    || contains(log.message, search)
+                    || contains(log.tag, search)
+                    || contains(log.time, search);
+        }
+
+        final List<String> words = new ArrayList<>();
+        if (log.tag != null) {
+            words.addAll(tokenize(log.tag));
+        }
+        if (log.message != null) {
+            words.addAll(tokenize(log.message));
+        }
+
+        for (String token : searchTokens) {
+            if (!hasWordWithPrefix(words, token)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasWordWithPrefix(List<String> words, String prefix) {
+        for (String word : words) {
+            if (word.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean contains(String value, String part) {
+        return value != null && value.toLowerCase(Locale.ROOT).contains(part);
+    }
+
+    private static String lowerCase(String value) {
+        return TextUtils.isEmpty(value) ? null : value.toLowerCase(Locale.ROOT);
+    }
+}
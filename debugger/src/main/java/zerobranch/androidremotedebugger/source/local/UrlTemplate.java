@@ -0,0 +1,74 @@
+/*
+ * Copyright 2020 Arman Sargsyan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zerobranch.androidremotedebugger.source.local;
+
+import java.util.regex.Pattern;
+
+import okhttp3.HttpUrl;
+
+/**
+ * Turns a URL into the template of its endpoint by replacing the path segments
+ * that identify a resource, so {@code /users/42/orders} becomes {@code /users/{id}/orders}.
+ */
+public final class UrlTemplate {
+    private static final Pattern NUMBER = Pattern.compile("\\d+");
+    private static final Pattern UUID = Pattern.compile(
+        "[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}");
+    private static final Pattern HASH = Pattern.compile("[0-9a-fA-F]{16,}");
+    private static final Pattern TOKEN = Pattern.compile("(?=.*\\d)[A-Za-z0-9_-]{24,}");
+
+    private final String host;
+    private final String path;
+
+    private UrlTemplate(String host, String path) {
+        this.host = host;
+        this.path = path;
+    }
+
+    public static UrlTemplate of(String url) {
+        final HttpUrl httpUrl = url == null ? null : HttpUrl.parse(url);
+        if (httpUrl == null) {
+            return new UrlTemplate("", url == null ? "" : url);
+        }
+
+        final StringBuilder path = new StringBuilder();
+        for (String segment : httpUrl.pathSegments()) {
+            path.append('/').append(toTemplate(segment));
+        }
+        return new UrlTemplate(httpUrl.host(), path.toString());
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    private static String toTemplate(String segment) {
+        if (NUMBER.matcher(segment).matches()) {
+            return "{id}";
+        } else if (UUID.matcher(segment).matches()) {
+            return "{uuid}";
+        } else if (HASH.matcher(segment).matches()) {
+            return "{hash}";
+        } else if (TOKEN.matcher(segment).matches()) {
+            return "{token}";
+        }
+        return segment;
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2020 Arman Sargsyan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zerobranch.androidremotedebugger.source.managers;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import zerobranch.androidremotedebugger.settings.BackpressurePolicy;
+
+/**
+ * Bounded queue that hands items to a single writer in batches.
+ * The writer runs on the writer thread once the queue
+ * holds {@code batchSize} items or {@code flushInterval} ms after the first
+ * item of a batch was queued, whichever comes first. When the queue is full
+ * the {@link BackpressurePolicy} decides whether the caller waits or an item is dropped.
+ */
+final class BatchQueue<T> {
+    private final BlockingQueue<T> queue;
+    private final WriterThread writerThread;
+    private final Writer<T> writer;
+    private final BackpressurePolicy backpressurePolicy;
+    private final int batchSize;
+    private final long flushInterval;
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicBoolean isFlushPosted = new AtomicBoolean();
+    private final AtomicBoolean isDelayedFlushPosted = new AtomicBoolean();
+    private final Runnable flushTask = this::flush;
+
+    BatchQueue(Handler handler,
+               int capacity,
+               int batchSize,
+               long flushInterval,
+               BackpressurePolicy backpressurePolicy,
+               Writer<T> writer) {
+        this(new HandlerWriterThread(handler), capacity, batchSize, flushInterval, backpressurePolicy, writer);
+    }
+
+    BatchQueue(WriterThread writerThread,
+               int capacity,
+               int batchSize,
+               long flushInterval,
+               BackpressurePolicy backpressurePolicy,
+               Writer<T> writer) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.writerThread = writerThread;
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.backpressurePolicy = backpressurePolicy;
+        this.writer = writer;
+    }
+
+    void put(T item) {
+        if (!queue.offer(item) && !onQueueFull(item)) {
+            return;
+        }
+
+        if (queue.size() >= batchSize) {
+            postFlush();
+        } else if (isDelayedFlushPosted.compareAndSet(false, true)) {
+            writerThread.postDelayed(flushTask, flushInterval);
+        }
+    }
+
+    void clear() {
+        queue.clear();
+    }
+
+    int size() {
+        return queue.size();
+    }
+
+    long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    private boolean onQueueFull(T item) {
+        postFlush();
+
+        switch (backpressurePolicy) {
+            case DROP_NEW:
+                droppedCount.incrementAndGet();
+                return false;
+            case DROP_OLDEST:
+                while (!queue.offer(item)) {
+                    if (queue.poll() != null) {
+                        droppedCount.incrementAndGet();
+                    }
+                }
+                return true;
+            case BLOCK:
+            default:
+                if (writerThread.isCurrentThread()) {
+                    flush();
+                    return queue.offer(item);
+                }
+
+                try {
+                    queue.put(item);
+                    return true;
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    droppedCount.incrementAndGet();
+                    return false;
+                }
+        }
+    }
+
+    private void postFlush() {
+        if (isFlushPosted.compareAndSet(false, true)) {
+            writerThread.post(flushTask);
+        }
+    }
+
+    /**
+     * Writes everything queued right now. Must be called on the writer thread.
+     */
+    void flush() {
+        writerThread.removeCallbacks(flushTask);
+        isFlushPosted.set(false);
+        isDelayedFlushPosted.set(false);
+
+        final List<T> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            writer.write(batch);
+            batch.clear();
+        }
+    }
+
+    interface Writer<T> {
+        void write(List<T> batch);
+    }
+
+    interface WriterThread {
+        void post(Runnable task);
+
+        void postDelayed(Runnable task, long delayMillis);
+
+        void removeCallbacks(Runnable task);
+
+        boolean isCurrentThread();
+    }
+
+    private static final class HandlerWriterThread implements WriterThread {
+        private final Handler handler;
+
+        HandlerWriterThread(Handler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void post(Runnable task) {
+            handler.post(task);
+        }
+
+        @Override
+        public void postDelayed(Runnable task, long delayMillis) {
+            handler.postDelayed(task, delayMillis);
+        }
+
+        @Override
+        public void removeCallbacks(Runnable task) {
+            handler.removeCallbacks(task);
+        }
+
+        @Override
+        public boolean isCurrentThread() {
+            return Looper.myLooper() == handler.getLooper();
+        }
+    }
+}
@@ -16,45 +16,128 @@
 package zerobranch.androidremotedebugger.source.managers;
 
 import android.content.Context;
+import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
 import android.os.Handler;
 import android.os.HandlerThread;
 
 import zerobranch.androidremotedebugger.AndroidRemoteDebugger;
+import zerobranch.androidremotedebugger.settings.BackpressurePolicy;
+import zerobranch.androidremotedebugger.settings.StorageSettings;
 import zerobranch.androidremotedebugger.source.local.StatusCodeFilter;
 import zerobranch.androidremotedebugger.source.models.LogModel;
+import zerobranch.androidremotedebugger.source.models.httplog.EndpointSummary;
 import zerobranch.androidremotedebugger.source.models.httplog.HttpLogModel;
 import zerobranch.androidremotedebugger.source.repository.HttpLogRepository;
 import zerobranch.androidremotedebugger.source.repository.LogRepository;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 public final class ContinuousDBManager {
     private static final String DATABASE_NAME = "remote_debugger_data.db";
+    private static final int LOG_QUEUE_CAPACITY = 10000;
+    private static final int RETENTION_CHUNK_SIZE = 500;
+    private static final long RETENTION_CHECK_INTERVAL = 10000;
+    private static final long DESTROY_TIMEOUT = 5000;
+    private static final String ENDPOINTS_FILE_NAME = "remote_debugger_endpoints.json";
+    private static final long ENDPOINTS_PERSIST_INTERVAL = 30000;
     private static final Object LOCK = new Object();
     private static ContinuousDBManager instance;
     private final Handler loggingHandler;
     private final HandlerThread loggingHandlerThread;
-    private SQLiteDatabase database;
-    private HttpLogRepository httpLogRepository;
-    private LogRepository logRepository;
+    private final BatchQueue<LogModel> logQueue;
+    private final BatchQueue<HttpLogModel> httpLogQueue;
+    private final StorageSettings storageSettings;
+    private final AtomicLong evictedLogsCount = new AtomicLong();
+    private final AtomicLong evictedHttpLogsCount = new AtomicLong();
+    private final EndpointAggregator endpointAggregator;
+    private final List<Subscriber<LogModel>> logSubscribers = new CopyOnWriteArrayList<>();
+    private final List<Subscriber<HttpLogModel>> httpLogSubscribers = new CopyOnWriteArrayList<>();
+    private final Runnable retentionTask = new Runnable() {
+        @Override
+        public void run() {
+            enforceRetention();
+            loggingHandler.postDelayed(this, RETENTION_CHECK_INTERVAL);
+        }
+    };
+    private final Runnable endpointsPersistTask = new Runnable() {
+        @Override
+        public void run() {
+            endpointAggregator.persist();
+            loggingHandler.postDelayed(this, ENDPOINTS_PERSIST_INTERVAL);
+        }
+    };
+    private volatile SQLiteDatabase database;
+    private volatile HttpLogRepository httpLogRepository;
+    private volatile LogRepository logRepository;
+
+    private ContinuousDBManager(final Context context, StorageSettings storageSettings) {
+        this.storageSettings = storageSettings;
+        this.endpointAggregator = new EndpointAggregator(new File(context.getFilesDir(), ENDPOINTS_FILE_NAME));
 
-    private ContinuousDBManager(final Context context) {
         loggingHandlerThread = new HandlerThread("LoggingHandlerThread");
         loggingHandlerThread.start();
         loggingHandler = new Handler(loggingHandlerThread.getLooper());
 
         loggingHandler.post(() -> {
             SQLiteDatabase.deleteDatabase(context.getDatabasePath(DATABASE_NAME));
-            database = context.openOrCreateDatabase(DATABASE_NAME, Context.MODE_PRIVATE, null);
-            database.setVersion(Integer.MAX_VALUE);
+            // WAL gives the writer the primary connection and serves the browser's
+            // queries from the read-only pool, so searches never block ingestion
+            SQLiteDatabase db = context.openOrCreateDatabase(DATABASE_NAME,
+                    Context.MODE_PRIVATE | Context.MODE_ENABLE_WRITE_AHEAD_LOGGING, null);
+            db.setVersion(Integer.MAX_VALUE);
+            db.execSQL("PRAGMA synchronous = NORMAL");
+
+            HttpLogRepository httpLogRepository = new HttpLogRepository(db);
+            httpLogRepository.createHttpLogsTable(db);
+
+            LogRepository logRepository = new LogRepository(db);
+            logRepository.createLogsTable(db);
 
-            httpLogRepository = new HttpLogRepository(database);
-            httpLogRepository.createHttpLogsTable(database);
+            this.database = db;
+            this.httpLogRepository = httpLogRepository;
+            this.logRepository = logRepository;
 
-            logRepository = new LogRepository(database);
-            logRepository.createLogsTable(database);
+            if (storageSettings.getRetentionMaxAge() > 0 || storageSettings.getRetentionMaxBytes() > 0) {
+                loggingHandler.postDelayed(retentionTask, RETENTION_CHECK_INTERVAL);
+            }
+
+            endpointAggregator.load();
+            loggingHandler.postDelayed(endpointsPersistTask, ENDPOINTS_PERSIST_INTERVAL);
         });
+
+        logQueue = new BatchQueue<>(
+                loggingHandler,
+                LOG_QUEUE_CAPACITY,
+                storageSettings.getLogBatchSize(),
+                storageSettings.getLogFlushInterval(),
+                // the app's own Log calls, possibly on the main thread, must never wait for the disk
+                BackpressurePolicy.DROP_OLDEST,
+                batch -> {
+                    logRepository.addLogs(batch);
+                    enforceRetention();
+                    notifySubscribers(logSubscribers, batch);
+                }
+        );
+
+        httpLogQueue = new BatchQueue<>(
+                loggingHandler,
+                storageSettings.getHttpLogQueueCapacity(),
+                storageSettings.getLogBatchSize(),
+                storageSettings.getLogFlushInterval(),
+                storageSettings.getHttpLogBackpressurePolicy(),
+                batch -> {
+                    httpLogRepository.addAll(batch);
+                    endpointAggregator.add(batch);
+                    enforceRetention();
+                    notifySubscribers(httpLogSubscribers, batch);
+                }
+        );
     }
 
     public static ContinuousDBManager getInstance() {
@@ -65,19 +148,28 @@ public final class ContinuousDBManager {
         return instance;
     }
 
-    public static void init(Context context) {
+    public static void init(Context context, StorageSettings storageSettings) {
         synchronized (LOCK) {
             if (instance == null) {
-                instance = new ContinuousDBManager(context);
+                instance = new ContinuousDBManager(context, storageSettings);
             }
         }
     }
 
     public static void destroy() {
         if (instance != null) {
-            instance.loggingHandlerThread.quit();
+            instance.loggingHandler.post(instance::flush);
+            instance.loggingHandlerThread.quitSafely();
 
-            if (instance.database != null && instance.database.isOpen()) {
+            try {
+                instance.loggingHandlerThread.join(DESTROY_TIMEOUT);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+
+            // the writer may still be inside a transaction if it did not finish in time
+            if (!instance.loggingHandlerThread.isAlive()
+                    && instance.database != null && instance.database.isOpen()) {
                 instance.database.close();
             }
 
@@ -85,43 +177,164 @@ public final class ContinuousDBManager {
         }
     }
 
-    public long addHttpLog(HttpLogModel logModel) {
-        synchronized (LOCK) {
-            return httpLogRepository.add(logModel);
-        }
+    /**
+     * Registers a subscriber right away. It gets every batch written from now on,
+     * on the writer thread, so it must not do any slow work there.
+     */
+    public void subscribeLogs(Subscriber<LogModel> subscriber) {
+        logSubscribers.add(subscriber);
+    }
+
+    public void unsubscribeLogs(Subscriber<LogModel> subscriber) {
+        logSubscribers.remove(subscriber);
+    }
+
+    public void subscribeHttpLogs(Subscriber<HttpLogModel> subscriber) {
+        httpLogSubscribers.add(subscriber);
+    }
+
+    public void unsubscribeHttpLogs(Subscriber<HttpLogModel> subscriber) {
+        httpLogSubscribers.remove(subscriber);
+    }
+
+    public void addHttpLog(HttpLogModel logModel) {
+        httpLogQueue.put(logModel);
+    }
+
+    public long getDroppedLogsCount() {
+        return logQueue.getDroppedCount();
+    }
+
+    public long getDroppedHttpLogsCount() {
+        return httpLogQueue.getDroppedCount();
+    }
+
+    public int getPendingHttpLogsCount() {
+        return httpLogQueue.size();
     }
 
     public void clearAllHttpLogs() {
-        synchronized (LOCK) {
-            loggingHandler.post(() -> httpLogRepository.clearAll());
-        }
+        loggingHandler.post(() -> {
+            httpLogQueue.clear();
+            httpLogRepository.clearAll();
+            endpointAggregator.clear();
+        });
     }
 
     public void addLog(final LogModel model) {
-        synchronized (LOCK) {
-            loggingHandler.post(() -> logRepository.addLog(model));
-        }
+        logQueue.put(model);
     }
 
-    public List<LogModel> getLogsByFilter(int offset, int limit, String level, String tag, String search) {
-        synchronized (LOCK) {
-            return logRepository.getLogsByFilter(offset, limit, level, tag, search);
+    public List<LogModel> getLogsByFilter(long afterId,
+                                          long beforeId,
+                                          int limit,
+                                          String level,
+                                          String tag,
+                                          String search,
+                                          boolean isSubstringSearch) {
+        final LogRepository repository = logRepository;
+        if (repository == null) {
+            return Collections.emptyList();
         }
+        return repository.getLogsByFilter(afterId, beforeId, limit, level, tag, search, isSubstringSearch);
     }
 
     public void clearAllLogs() {
-        synchronized (LOCK) {
-            loggingHandler.post(() -> logRepository.clearAllLogs());
-        }
+        loggingHandler.post(() -> {
+            logQueue.clear();
+            logRepository.clearAllLogs();
+        });
     }
 
-    public List<HttpLogModel> getHttpLogs(int offset,
+    public List<HttpLogModel> getHttpLogs(long afterId,
+                                          long beforeId,
                                           int limit,
                                           StatusCodeFilter statusCode,
                                           boolean isOnlyErrors,
+                                          long minDuration,
+                                          long minBodySize,
                                           String search) {
-        synchronized (LOCK) {
-            return httpLogRepository.getHttpLogs(offset, limit, statusCode, isOnlyErrors, search);
+        final HttpLogRepository repository = httpLogRepository;
+        if (repository == null) {
+            return Collections.emptyList();
+        }
+        return repository.getHttpLogs(afterId, beforeId, limit, statusCode, isOnlyErrors, minDuration, minBodySize, search);
+    }
+
+    public List<EndpointSummary> getEndpointSummaries() {
+        return endpointAggregator.getSummaries();
+    }
+
+    public long getLogsCount() {
+        final LogRepository repository = logRepository;
+        return repository == null ? 0 : repository.getCount();
+    }
+
+    public long getHttpLogsCount() {
+        final HttpLogRepository repository = httpLogRepository;
+        return repository == null ? 0 : repository.getCount();
+    }
+
+    public long getEvictedLogsCount() {
+        return evictedLogsCount.get();
+    }
+
+    public long getEvictedHttpLogsCount() {
+        return evictedHttpLogsCount.get();
+    }
+
+    public long getStorageSize() {
+        final SQLiteDatabase db = database;
+        if (db == null) {
+            return 0;
+        }
+
+        final long usedPages = DatabaseUtils.longForQuery(db, "PRAGMA page_count", null)
+                - DatabaseUtils.longForQuery(db, "PRAGMA freelist_count", null);
+        return usedPages * db.getPageSize();
+    }
+
+    private void flush() {
+        if (logRepository != null) {
+            logQueue.flush();
+            httpLogQueue.flush();
+        }
+
+        // after the last batch, so the stored statistics include it
+        endpointAggregator.persist();
+    }
+
+    private void enforceRetention() {
+        if (!storageSettings.isRetentionEnabled()) {
+            return;
+        }
+
+        final long maxAge = storageSettings.getRetentionMaxAge();
+        final long minCreatedAt = maxAge > 0 ? System.currentTimeMillis() - maxAge : 0;
+        final int maxRows = storageSettings.getRetentionMaxRows();
+
+        evictedLogsCount.addAndGet(logRepository.trim(maxRows, minCreatedAt, RETENTION_CHUNK_SIZE));
+        evictedHttpLogsCount.addAndGet(httpLogRepository.trim(maxRows, minCreatedAt, RETENTION_CHUNK_SIZE));
+
+        final long maxBytes = storageSettings.getRetentionMaxBytes();
+        if (maxBytes > 0 && getStorageSize() > maxBytes) {
+            evictedLogsCount.addAndGet(logRepository.trimOldest(RETENTION_CHUNK_SIZE));
+            evictedHttpLogsCount.addAndGet(httpLogRepository.trimOldest(RETENTION_CHUNK_SIZE));
+        }
+    }
+
+    private <T> void notifySubscribers(List<Subscriber<T>> subscribers, List<T> batch) {
+        if (subscribers.isEmpty()) {
+            return;
         }
+
+        final List<T> items = Collections.unmodifiableList(new ArrayList<>(batch));
+        for (Subscriber<T> subscriber : subscribers) {
+            subscriber.onAdded(items);
+        }
+    }
+
+    public interface Subscriber<T> {
+        void onAdded(List<T> items);
     }
 }
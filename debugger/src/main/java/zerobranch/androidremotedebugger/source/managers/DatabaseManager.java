@@ -18,21 +18,29 @@ package zerobranch.androidremotedebugger.source.managers;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.CursorWrapper;
+import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
+import android.os.CancellationSignal;
+import android.os.SystemClock;
 import android.text.TextUtils;
 
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Map;
 
+import zerobranch.androidremotedebugger.source.models.QueryPlan;
 import zerobranch.androidremotedebugger.source.models.Table;
+import zerobranch.androidremotedebugger.source.models.TableSchema;
 import zerobranch.androidremotedebugger.utils.FileUtils;
+import zerobranch.androidremotedebugger.utils.InternalUtils;
 
 public final class DatabaseManager {
+    public static final String PAGE_KEY_COLUMN = "__page_key";
     private static final String FIELD_TYPE_NULL = "null";
     private static final String FIELD_TYPE_INTEGER = "integer";
     private static final String FIELD_TYPE_REAL = "real";
@@ -40,9 +48,16 @@ public final class DatabaseManager {
     private static final String FIELD_TYPE_TEXT = "text";
     private static final String DATA_BASE_DIR = "databases";
     private static final String SELECT_QUERY = "select";
+    private static final String STAT_TABLE = "sqlite_stat1";
+    private static final String ROWID = "_rowid_";
     private static final Object LOCK = new Object();
 
+    private final Map<String, CachedCount> tableCounts = new HashMap<>();
     private SQLiteDatabase db;
+    private SQLiteDatabase readDb;
+    private SchemaCache schemaCache;
+    private SearchPlanner searchPlanner;
+    private QueryPlanAnalyzer queryPlanAnalyzer;
     private Context context;
     private static DatabaseManager instance;
 
@@ -60,6 +75,12 @@ public final class DatabaseManager {
         }
 
         db = SQLiteDatabase.openDatabase(dbFile.getPath(), null, SQLiteDatabase.OPEN_READWRITE);
+        // console queries and exports read through a connection of their own, a database that is
+        // not in WAL mode gives each SQLiteDatabase a single connection, which a slow query would hold
+        readDb = SQLiteDatabase.openDatabase(dbFile.getPath(), null, SQLiteDatabase.OPEN_READONLY);
+        schemaCache = new SchemaCache(db);
+        searchPlanner = new SearchPlanner(db);
+        queryPlanAnalyzer = new QueryPlanAnalyzer(db, schemaCache);
     }
 
     public static DatabaseManager getInstance() {
@@ -110,73 +131,204 @@ public final class DatabaseManager {
         }
     }
 
-    public Table getTableDataByQuery(String customQuery) {
-        synchronized (LOCK) {
-            final Table table = new Table();
-            table.data = new ArrayList<>();
-
-            customQuery = customQuery.trim();
-
-            if (customQuery.toLowerCase().startsWith(SELECT_QUERY)) {
-                final Cursor cursor = db.rawQuery(customQuery, null);
-                table.headers = getImmutableHeaders(Arrays.asList(cursor.getColumnNames()));
-                table.count = cursor.getCount();
+    /**
+     * Runs the query and returns the cursor over its rows, which the caller must close,
+     * or executes it and returns {@code null} if it is not a select statement.
+     */
+    public Cursor queryByCustomQuery(String customQuery, CancellationSignal cancellationSignal) {
+        customQuery = customQuery.trim();
 
-                while (cursor.moveToNext()) {
-                    final List<String> row = new ArrayList<>();
-                    for (Table.Header column : table.headers) {
-                        row.add(cursor.getString(cursor.getColumnIndex(column.name)));
-                    }
-                    table.data.add(row);
-                }
-
-                cursor.close();
-            } else {
-                table.count = 0;
-                table.headers = Collections.emptyList();
-
-                db.execSQL(customQuery);
-            }
+        if (isSelectQuery(customQuery)) {
+            // a select runs on the read connection, so a slow one does not hold up the other endpoints
+            return readQuery(customQuery, null, cancellationSignal);
+        }
 
-            return table;
+        synchronized (LOCK) {
+            db.execSQL(customQuery);
+            tableCounts.clear();
+            return null;
         }
     }
 
+    public List<Table.Header> getQueryHeaders(Cursor cursor) {
+        return getImmutableHeaders(Arrays.asList(cursor.getColumnNames()));
+    }
+
+    /**
+     * Returns the exact number of rows. Counts are cached per table until the database
+     * is changed, either by this connection ({@code total_changes()}) or by any other
+     * connection ({@code PRAGMA data_version}). Without {@code data_version} nothing is cached.
+     */
     public int getTableDataCount(String tableName) {
         synchronized (LOCK) {
+            final Long dataVersion = getDataVersion();
+            final long totalChanges = DatabaseUtils.longForQuery(db, "SELECT total_changes()", null);
+
+            final CachedCount cachedCount = tableCounts.get(tableName);
+            if (dataVersion != null && cachedCount != null && cachedCount.isValid(dataVersion, totalChanges)) {
+                return cachedCount.count;
+            }
+
             final Cursor cursor = db.rawQuery("SELECT COUNT (*) FROM " + tableName, null);
             cursor.moveToFirst();
             final int count = cursor.getInt(cursor.getColumnIndex(cursor.getColumnName(0)));
             cursor.close();
+
+            if (dataVersion != null) {
+                tableCounts.put(tableName, new CachedCount(dataVersion, totalChanges, count));
+            }
             return count;
         }
     }
 
-    public Table getTableData(String tableName, int page, int limit) {
+    /**
+     * Returns the number of rows estimated by the last {@code ANALYZE},
+     * or {@code null} if the table has not been analyzed.
+     */
+    public Integer getApproximateTableDataCount(String tableName) {
         synchronized (LOCK) {
-            final Table table = new Table();
-            final String metaInfo = getTableMetaInfo(tableName);
-
-            table.data = new ArrayList<>();
-            table.headers = getHeaders(metaInfo);
+            if (DatabaseUtils.longForQuery(db, "SELECT COUNT(*) FROM sqlite_master " +
+                "WHERE type = 'table' AND name = '" + STAT_TABLE + "'", null) == 0) {
+                return null;
+            }
 
-            final int offset = (page - 1) * limit;
-            final Cursor cursor = db.rawQuery("SELECT * FROM " + tableName +
-                " LIMIT " + limit + " OFFSET " + offset, null);
+            final Cursor cursor = db.rawQuery("SELECT stat FROM " + STAT_TABLE + " WHERE tbl = ?",
+                new String[]{tableName});
 
+            Integer count = null;
             while (cursor.moveToNext()) {
-                final List<String> row = new ArrayList<>();
-                for (Table.Header column : table.headers) {
-                    row.add(cursor.getString(cursor.getColumnIndex(column.name)));
+                final String stat = cursor.getString(0);
+                if (stat == null) {
+                    continue;
+                }
+
+                final String rows = stat.split(" ")[0];
+                if (InternalUtils.isInt(rows)) {
+                    count = Math.max(count != null ? count : 0, Integer.parseInt(rows));
                 }
-                table.data.add(row);
             }
 
             cursor.close();
-            return table;
+            return count;
+        }
+    }
+
+    public List<Table.Header> getTableHeaders(String tableName) {
+        synchronized (LOCK) {
+            final List<Table.Header> headers = new ArrayList<>();
+            for (TableSchema.Column column : schemaCache.get(tableName).columns) {
+                final String fieldType = getFieldType(column.type);
+
+                final Table.Header header = new Table.Header();
+                header.name = column.name;
+                header.type = fieldType != null ? fieldType : FIELD_TYPE_TEXT;
+                header.isMutable = column.primaryKeyPosition == 0 && !column.isGenerated;
+                headers.add(header);
+            }
+            return headers;
         }
     }
 
+    /**
+     * Returns the expression the rows of the table can be paged by with index seeks:
+     * the rowid, or the primary key of a {@code WITHOUT ROWID} table when it is a single
+     * non-blob column; {@code null} if there is none.
+     */
+    public String getPageKey(String tableName) {
+        synchronized (LOCK) {
+            final TableSchema schema = schemaCache.get(tableName);
+            if (schema.hasRowId) {
+                return ROWID;
+            }
+
+            String primaryKey = null;
+            int primaryKeyCount = 0;
+
+            for (TableSchema.Column column : schema.columns) {
+                if (column.primaryKeyPosition > 0) {
+                    primaryKeyCount++;
+
+                    if (column.type == null || !column.type.toLowerCase().contains(FIELD_TYPE_BLOB)) {
+                        primaryKey = column.name;
+                    }
+                }
+            }
+
+            return primaryKeyCount == 1 && primaryKey != null ? SchemaCache.quoteIdentifier(primaryKey) : null;
+        }
+    }
+
+    /**
+     * @return the cursor over the rows of the page, which the caller must close.
+     * When a page key is given, rows are ordered by it and it is returned in {@link #PAGE_KEY_COLUMN}
+     */
+    public Cursor queryTableData(String tableName, String pageKey, int page, int limit) {
+        final int offset = (page - 1) * limit;
+        if (pageKey == null) {
+            return query("SELECT * FROM " + tableName +
+                " LIMIT " + limit + " OFFSET " + offset, null, null);
+        }
+
+        return query("SELECT " + pageKey + " AS " + PAGE_KEY_COLUMN + ", * FROM " + tableName +
+            " ORDER BY " + pageKey + " LIMIT " + limit + " OFFSET " + offset, null, null);
+    }
+
+    /**
+     * @return the cursor over the first rows whose page key follows the given one,
+     * or the first rows of the table if the key is {@code null}, which the caller must close
+     */
+    public Cursor queryTableDataAfter(String tableName, String pageKey, String key, boolean isInclusive, int limit) {
+        final String where = key == null ? ""
+            : " WHERE " + pageKey + (isInclusive ? " >= " : " > ") + getPageKeyArgument(pageKey);
+
+        return query("SELECT " + pageKey + " AS " + PAGE_KEY_COLUMN + ", * FROM " + tableName +
+            where + " ORDER BY " + pageKey + " LIMIT " + limit, key == null ? null : new String[]{key}, null);
+    }
+
+    /**
+     * @return the cursor over the last rows whose page key precedes the given one,
+     * or the last rows of the table if the key is {@code null}, in ascending order, which the caller must close
+     */
+    public Cursor queryTableDataBefore(String tableName, String pageKey, String key, int limit) {
+        final String where = key == null ? "" : " WHERE " + pageKey + " < " + getPageKeyArgument(pageKey);
+
+        return query("SELECT * FROM (SELECT " + pageKey + " AS " + PAGE_KEY_COLUMN + ", * FROM " +
+            tableName + where + " ORDER BY " + pageKey + " DESC LIMIT " + limit + ") ORDER BY " +
+            PAGE_KEY_COLUMN, key == null ? null : new String[]{key}, null);
+    }
+
+    public TableSchema getTableSchema(String tableName) {
+        synchronized (LOCK) {
+            return schemaCache.get(tableName);
+        }
+    }
+
+    /**
+     * @return the cursor over the next rows ordered by rowid, with the rowid in the first column,
+     * which the caller must close
+     */
+    public Cursor queryRowIdChunk(String tableName, Long afterRowId, int limit) {
+        final String table = SchemaCache.quoteIdentifier(tableName);
+        if (afterRowId == null) {
+            return readQuery("SELECT " + ROWID + ", * FROM " + table +
+                " ORDER BY " + ROWID + " LIMIT " + limit, null, null);
+        }
+        return readQuery("SELECT " + ROWID + ", * FROM " + table +
+            " WHERE " + ROWID + " > " + afterRowId + " ORDER BY " + ROWID + " LIMIT " + limit, null, null);
+    }
+
+    /**
+     * @return the cursor over a page of the rows of the select statement, which the caller must close.
+     * Every page runs the statement again, so this is only meant for {@code WITHOUT ROWID} tables
+     */
+    public Cursor queryOffsetChunk(String selectQuery, int offset, int limit) {
+        return readQuery("SELECT * FROM (" + selectQuery + ") LIMIT " + limit + " OFFSET " + offset, null, null);
+    }
+
+    public static boolean isSelectQuery(String query) {
+        return query.trim().toLowerCase().startsWith(SELECT_QUERY);
+    }
+
     public void removeItems(final String tableName, final List<String> headers, final List<List<String>> lines) {
         synchronized (LOCK) {
             transactionRun(() -> {
@@ -208,6 +360,7 @@ public final class DatabaseManager {
                 return;
             }
             db.execSQL("DROP TABLE " + tableName);
+            tableCounts.remove(tableName);
         }
     }
 
@@ -258,50 +411,126 @@ public final class DatabaseManager {
         }
     }
 
-    public Table search(String tableName, String text) {
+    /**
+     * Returns the plan of a select query, then runs the query to measure it.
+     * Rows scanned are estimated from the sizes of the tables the plan reads in full.
+     */
+    public QueryPlan explainQuery(String query, CancellationSignal cancellationSignal) {
+        final QueryPlan plan;
         synchronized (LOCK) {
-            final Table table = new Table();
-            final String metaInfo = getTableMetaInfo(tableName);
+            plan = queryPlanAnalyzer.analyze(query.trim());
+        }
 
-            table.data = new ArrayList<>();
-            table.headers = getHeaders(metaInfo);
+        for (QueryPlan.Step step : plan.steps) {
+            if (QueryPlanAnalyzer.isTableScan(step)) {
+                step.scannedRows = estimateTableDataCount(step.table, cancellationSignal);
+                if (step.scannedRows != null) {
+                    plan.rowsScanned += step.scannedRows;
+                }
+            }
+        }
 
-            final StringBuilder queryBuilder = new StringBuilder("SELECT * FROM " + tableName + " WHERE ");
-            final List<String> arguments = new ArrayList<>();
+        final long startTime = SystemClock.elapsedRealtime();
+        final Cursor cursor = readQuery(query, null, cancellationSignal);
+        try {
+            plan.rowsReturned = cursor.getCount();
+        } finally {
+            cursor.close();
+        }
+
+        plan.durationMs = SystemClock.elapsedRealtime() - startTime;
+        return plan;
+    }
 
-            for (Table.Header header : table.headers) {
-                queryBuilder.append(header.name)
-                    .append(" LIKE ?")
-                    .append(" or ");
-                arguments.add("%".concat(text).concat("%"));
+    /**
+     * Finds at most {@code limit} rows that contain the text, using the indexes of the table where possible.
+     */
+    public SearchResult search(String tableName, String text, int limit, CancellationSignal cancellationSignal) {
+        synchronized (LOCK) {
+            db.acquireReference();
+            try {
+                final SearchResult result = searchPlanner.search(schemaCache.get(tableName), text, limit,
+                    cancellationSignal);
+                return new SearchResult(new DatabaseCursor(result.getCursor(), db),
+                    result.getStrategy(), result.getDurationMs(), result.isTruncated());
+            } catch (RuntimeException ex) {
+                db.releaseReference();
+                throw ex;
             }
+        }
+    }
 
-            queryBuilder.delete(queryBuilder.length() - 4, queryBuilder.length() - 1);
+    private Cursor query(String sql, String[] arguments, CancellationSignal cancellationSignal) {
+        return query(false, sql, arguments, cancellationSignal);
+    }
 
-            final Cursor cursor = db.rawQuery(queryBuilder.toString(), arguments.toArray(new String[0]));
+    private Cursor readQuery(String sql, String[] arguments, CancellationSignal cancellationSignal) {
+        return query(true, sql, arguments, cancellationSignal);
+    }
 
-            while (cursor.moveToNext()) {
-                final List<String> row = new ArrayList<>();
-                for (Table.Header column : table.headers) {
-                    row.add(cursor.getString(cursor.getColumnIndex(column.name)));
-                }
-                table.data.add(row);
+    /**
+     * Cursors are stepped lazily, long after this returns, so the database they read
+     * is kept open until they are closed, even if another database is connected meanwhile.
+     */
+    private Cursor query(boolean isReadOnly, String sql, String[] arguments, CancellationSignal cancellationSignal) {
+        final SQLiteDatabase database;
+        synchronized (LOCK) {
+            database = isReadOnly ? readDb : db;
+            database.acquireReference();
+        }
+
+        try {
+            return new DatabaseCursor(database.rawQuery(sql, arguments, cancellationSignal), database);
+        } catch (RuntimeException ex) {
+            database.releaseReference();
+            throw ex;
+        }
+    }
+
+    /**
+     * Returns the number of rows without counting them: the cached exact count, the estimate
+     * of the last {@code ANALYZE} or the largest rowid, or {@code null} if none of them is known.
+     */
+    private Long estimateTableDataCount(String tableName, CancellationSignal cancellationSignal) {
+        final boolean hasRowId;
+        synchronized (LOCK) {
+            final CachedCount cachedCount = tableCounts.get(tableName);
+            if (cachedCount != null) {
+                return (long) cachedCount.count;
             }
+            hasRowId = schemaCache.get(tableName).hasRowId;
+        }
+
+        final Integer analyzedCount = getApproximateTableDataCount(tableName);
+        if (analyzedCount != null) {
+            return (long) analyzedCount;
+        } else if (!hasRowId) {
+            return null;
+        }
 
-            table.count = cursor.getCount();
+        final Cursor cursor = readQuery("SELECT max(" + ROWID + ") FROM " + SchemaCache.quoteIdentifier(tableName),
+            null, cancellationSignal);
+        try {
+            return cursor.moveToFirst() && !cursor.isNull(0) ? cursor.getLong(0) : 0L;
+        } finally {
             cursor.close();
-            return table;
         }
     }
 
-    private String getTableMetaInfo(String tableName) {
-        final Cursor metaCursor = db.rawQuery("SELECT sql FROM sqlite_master " +
-            "where name = '" + tableName + "'", null);
+    // PRAGMA data_version only exists since SQLite 3.8.8 (API 23), before that it returns no row
+    // and the changes of other connections cannot be noticed
+    private Long getDataVersion() {
+        final Cursor cursor = db.rawQuery("PRAGMA data_version", null);
+        try {
+            return cursor.moveToFirst() ? cursor.getLong(0) : null;
+        } finally {
+            cursor.close();
+        }
+    }
 
-        metaCursor.moveToFirst();
-        String metaSql = metaCursor.getString(metaCursor.getColumnIndex("sql"));
-        metaCursor.close();
-        return metaSql;
+    // a bound argument is text, the rowid has no declared type that would convert it for the comparison
+    private String getPageKeyArgument(String pageKey) {
+        return ROWID.equals(pageKey) ? "CAST(? AS INTEGER)" : "?";
     }
 
     private String getFieldType(String metadata) {
@@ -331,86 +560,6 @@ public final class DatabaseManager {
         return headers;
     }
 
-    private List<String> findPrimaryKey(String columnsText) {
-        List<String> primaryKeys = new ArrayList<>();
-
-        if (!columnsText.toLowerCase().contains("primary key")) {
-            return primaryKeys;
-        }
-
-        Pattern pattern = Pattern.compile("(?i)(primary key\\s*\\().*?\\)");
-        Matcher matcher = pattern.matcher(columnsText);
-        if (matcher.find()) {
-            String primaryKeyPart = matcher.group(0).replaceAll("(?i)(primary key\\s*\\()", "").replaceAll("\\)", "");
-            String[] columnParams = primaryKeyPart.split(",");
-
-            for (String columnParam : columnParams) {
-                primaryKeys.add(columnParam.trim());
-            }
-        } else {
-            String[] columnParams = columnsText.split(",");
-            for (String columnParam : columnParams) {
-                if (columnParam.toLowerCase().contains("primary key")) {
-                    primaryKeys.add(columnParam.trim().split(" ")[0].trim());
-                }
-            }
-        }
-
-        return primaryKeys;
-    }
-
-    private List<Table.Header> getHeaders(String sql) {
-        List<Table.Header> columnsList = new ArrayList<>();
-        int start = sql.indexOf("(");
-        int end = sql.lastIndexOf(")");
-
-        String columnsText = sql.substring(start + 1, end);
-        columnsText = columnsText
-            .trim()
-            .replaceAll("\"", "")
-            .replaceAll("`", "")
-            .replaceAll("'", "")
-            .replaceAll("\n", " ")
-            .replaceAll("\r", " ")
-            .replaceAll("\t", " ");
-
-        List<String> primaryKeys = findPrimaryKey(columnsText);
-
-        columnsText = columnsText.replaceAll("(?i)(primary key\\s*\\().*?\\)", ""); // remove primary key in the end
-
-        String[] columns = columnsText.split(",");
-
-        for (String column : columns) {
-            column = column.trim();
-            String columnName = column.split(" ")[0].trim();
-
-            if (columnName.isEmpty()) {
-                continue;
-            }
-
-            if (column.equals(columnName)) {
-                columnsList.add(getDefaultHeader(columnName, true));
-                continue;
-            }
-
-            String columnMetadata = column.substring(columnName.length() + 1);
-            String fieldType = getFieldType(columnMetadata);
-
-            if (fieldType == null) {
-                continue;
-            }
-
-            Table.Header header = new Table.Header();
-            header.name = columnName;
-            header.isMutable = !primaryKeys.contains(columnName);
-            header.type = fieldType;
-
-            columnsList.add(header);
-        }
-
-        return columnsList;
-    }
-
     private Table.Header getDefaultHeader(String columnName, boolean isMutable) {
         Table.Header header = new Table.Header();
         header.name = columnName;
@@ -435,11 +584,51 @@ public final class DatabaseManager {
                 if (instance.db != null && instance.db.isOpen()) {
                     instance.db.close();
                 }
+                if (instance.readDb != null && instance.readDb.isOpen()) {
+                    instance.readDb.close();
+                }
 
                 instance.db = null;
+                instance.readDb = null;
                 instance.context = null;
                 instance = null;
             }
         }
     }
-}
\ No newline at end of file
+
+    private static final class DatabaseCursor extends CursorWrapper {
+        private final SQLiteDatabase database;
+        private boolean isReleased;
+
+        DatabaseCursor(Cursor cursor, SQLiteDatabase database) {
+            super(cursor);
+            this.database = database;
+        }
+
+        @Override
+        public void close() {
+            super.close();
+
+            if (!isReleased) {
+                isReleased = true;
+                database.releaseReference();
+            }
+        }
+    }
+
+    private static final class CachedCount {
+        private final long dataVersion;
+        private final long totalChanges;
+        private final int count;
+
+        CachedCount(long dataVersion, long totalChanges, int count) {
+            this.dataVersion = dataVersion;
+            this.totalChanges = totalChanges;
+            this.count = count;
+        }
+
+        boolean isValid(long dataVersion, long totalChanges) {
+            return this.dataVersion == dataVersion && this.totalChanges == totalChanges;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2020 Arman Sargsyan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zerobranch.androidremotedebugger.source.managers;
+
+import android.util.AtomicFile;
+import android.util.Log;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import zerobranch.androidremotedebugger.source.local.LogLinearHistogram;
+import zerobranch.androidremotedebugger.source.local.UrlTemplate;
+import zerobranch.androidremotedebugger.source.models.httplog.EndpointSummary;
+import zerobranch.androidremotedebugger.source.models.httplog.HttpLogModel;
+import zerobranch.androidremotedebugger.source.models.httplog.QueryType;
+
+/**
+ * Keeps latency and body size histograms per method, host and URL template,
+ * updated from every stored response, so endpoint percentiles never need
+ * the network log table. The histograms are written to a file from time to time
+ * and read back on start, which lets them outlive the log table.
+ */
+final class EndpointAggregator {
+    private static final String TAG = "EndpointAggregator";
+    private static final int MAX_ENDPOINTS = 500;
+    private static final String OTHER_TEMPLATE = "{other}";
+    private static final String ANY = "*";
+    private static final Type ENDPOINT_LIST_TYPE = new TypeToken<List<Endpoint>>() {}.getType();
+
+    private final Map<String, Endpoint> endpoints = new LinkedHashMap<>();
+    private final AtomicFile file;
+    private final Gson gson = new Gson();
+    private boolean isChanged;
+
+    EndpointAggregator(File file) {
+        this.file = new AtomicFile(file);
+    }
+
+    synchronized void load() {
+        try (InputStreamReader reader = new InputStreamReader(file.openRead(), StandardCharsets.UTF_8)) {
+            final List<Endpoint> stored = gson.fromJson(reader, ENDPOINT_LIST_TYPE);
+            if (stored != null) {
+                for (Endpoint endpoint : stored) {
+                    endpoints.put(endpoint.getKey(), endpoint);
+                }
+            }
+        } catch (IOException | JsonParseException ex) {
+            // nothing was stored yet, or the file is unreadable and is overwritten on the next write
+        }
+    }
+
+    synchronized void add(List<HttpLogModel> logs) {
+        for (HttpLogModel log : logs) {
+            if (log.queryType != QueryType.RESPONSE) {
+                continue;
+            }
+
+            final Endpoint endpoint = getEndpoint(log.method, UrlTemplate.of(log.url));
+            endpoint.count++;
+            endpoint.lastSeen = log.timestamp;
+
+            if (log.errorMessage != null || (log.code != null && log.code >= 400)) {
+                endpoint.errorCount++;
+            }
+
+            if (log.durationMs != null) {
+                endpoint.latency.record(log.durationMs);
+            }
+
+            if (log.bodySizeBytes != null) {
+                endpoint.bodySize.record(log.bodySizeBytes);
+            }
+        }
+        isChanged = true;
+    }
+
+    synchronized List<EndpointSummary> getSummaries() {
+        final List<EndpointSummary> summaries = new ArrayList<>();
+        for (Endpoint endpoint : endpoints.values()) {
+            final EndpointSummary summary = new EndpointSummary();
+            summary.method = endpoint.method;
+            summary.host = endpoint.host;
+            summary.template = endpoint.template;
+            summary.count = endpoint.count;
+            summary.errorCount = endpoint.errorCount;
+            summary.errorRate = endpoint.count == 0 ? 0 : (double) endpoint.errorCount / endpoint.count;
+            summary.p50Ms = endpoint.latency.getValueAtPercentile(50);
+            summary.p95Ms = endpoint.latency.getValueAtPercentile(95);
+            summary.p99Ms = endpoint.latency.getValueAtPercentile(99);
+            summary.p50BodySize = endpoint.bodySize.getValueAtPercentile(50);
+            summary.p95BodySize = endpoint.bodySize.getValueAtPercentile(95);
+            summary.lastSeen = endpoint.lastSeen;
+            summaries.add(summary);
+        }
+
+        Collections.sort(summaries, (first, second) -> Long.compare(second.count, first.count));
+        return summaries;
+    }
+
+    synchronized void clear() {
+        endpoints.clear();
+        isChanged = false;
+        file.delete();
+    }
+
+    void persist() {
+        final String json;
+        synchronized (this) {
+            if (!isChanged) {
+                return;
+            }
+            json = gson.toJson(new ArrayList<>(endpoints.values()), ENDPOINT_LIST_TYPE);
+            isChanged = false;
+        }
+
+        FileOutputStream stream = null;
+        try {
+            stream = file.startWrite();
+            stream.write(json.getBytes(StandardCharsets.UTF_8));
+            file.finishWrite(stream);
+        } catch (IOException ex) {
+            if (stream != null) {
+                file.failWrite(stream);
+            }
+            Log.w(TAG, "Could not store endpoint statistics", ex);
+        }
+    }
+
+    private Endpoint getEndpoint(String method, UrlTemplate urlTemplate) {
+        String host = urlTemplate.getHost();
+        String template = urlTemplate.getPath();
+        Endpoint endpoint = endpoints.get(Endpoint.getKey(method, host, template));
+
+        // endpoints that could not be templated would otherwise grow the map without a bound,
+        // so past the limit every new one goes to a single row, whatever its method and host
+        if (endpoint == null && endpoints.size() >= MAX_ENDPOINTS) {
+            method = ANY;
+            host = ANY;
+            template = OTHER_TEMPLATE;
+            endpoint = endpoints.get(Endpoint.getKey(method, host, template));
+        }
+
+        if (endpoint == null) {
+            endpoint = new Endpoint();
+            endpoint.method = method;
+            endpoint.host = host;
+            endpoint.template = template;
+            endpoints.put(endpoint.getKey(), endpoint);
+        }
+        return endpoint;
+    }
+
+    private static final class Endpoint {
+        private String method;
+        private String host;
+        private String template;
+        private long count;
+        private long errorCount;
+        private long lastSeen;
+        private LogLinearHistogram latency = new LogLinearHistogram();
+        private LogLinearHistogram bodySize = new LogLinearHistogram();
+
+        private String getKey() {
+            return getKey(method, host, template);
+        }
+
+        private static String getKey(String method, String host, String template) {
+            return method + " " + host + template;
+        }
+    }
+}
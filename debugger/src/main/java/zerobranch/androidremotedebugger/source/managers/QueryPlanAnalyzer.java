@@ -0,0 +1,214 @@
+/*
+ * Copyright 2020 Arman Sargsyan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zerobranch.androidremotedebugger.source.managers;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.text.TextUtils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import zerobranch.androidremotedebugger.source.models.QueryPlan;
+import zerobranch.androidremotedebugger.source.models.TableSchema;
+
+/**
+ * Reads the plan of a select query with {@code EXPLAIN QUERY PLAN} and suggests
+ * an index for every table the plan reads in full while the query filters it.
+ * Filtered columns are found by looking for comparisons in the query text,
+ * so a suggestion is a hint rather than a guarantee that SQLite would use the index.
+ */
+final class QueryPlanAnalyzer {
+    private static final String SCAN = "SCAN";
+    private static final String PRIMARY_KEY = "PRIMARY KEY";
+    private static final String INTEGER_TYPE = "integer";
+    private static final Pattern STEP_PATTERN = Pattern.compile(
+        "^(SCAN|SEARCH)\\s+(?:TABLE\\s+)?(\\S+)(?:\\s+AS\\s+\\S+)?(?:\\s+USING\\s+(.*))?$");
+    private static final Pattern INDEX_PATTERN = Pattern.compile("(?:COVERING\\s+)?INDEX\\s+(\\S+)");
+    private static final Pattern FROM_PATTERN = Pattern.compile("\\bFROM\\b", Pattern.CASE_INSENSITIVE);
+    private static final String EQUALITY_OPERATORS = "(?:==?|IS\\b|IN\\b)";
+    private static final String RANGE_OPERATORS = "(?:<=?(?!>)|>=?|BETWEEN\\b)";
+
+    private final SQLiteDatabase db;
+    private final SchemaCache schemaCache;
+
+    QueryPlanAnalyzer(SQLiteDatabase db, SchemaCache schemaCache) {
+        this.db = db;
+        this.schemaCache = schemaCache;
+    }
+
+    QueryPlan analyze(String query) {
+        final QueryPlan plan = new QueryPlan();
+        plan.steps = readSteps(query);
+
+        final Matcher fromMatcher = FROM_PATTERN.matcher(query);
+        final String filterText = fromMatcher.find() ? query.substring(fromMatcher.end()) : "";
+
+        final Set<String> suggestedIndexes = new LinkedHashSet<>();
+        for (QueryPlan.Step step : plan.steps) {
+            if (!step.isFullScan) {
+                continue;
+            }
+
+            plan.hasFullScan = true;
+            final TableSchema schema = getSchema(step.table);
+            if (schema != null) {
+                final String suggestedIndex = suggestIndex(schema, filterText);
+                if (suggestedIndex != null) {
+                    suggestedIndexes.add(suggestedIndex);
+                }
+            }
+        }
+
+        plan.suggestedIndexes = new ArrayList<>(suggestedIndexes);
+        return plan;
+    }
+
+    private List<QueryPlan.Step> readSteps(String query) {
+        final Cursor cursor = db.rawQuery("EXPLAIN QUERY PLAN " + query, null);
+        final List<QueryPlan.Step> steps = new ArrayList<>();
+
+        // before SQLite 3.24 the plan is a flat list with "selectid" instead of "id" and no "parent"
+        int idIndex = cursor.getColumnIndex("id");
+        if (idIndex == -1) {
+            idIndex = cursor.getColumnIndex("selectid");
+        }
+        final int parentIndex = cursor.getColumnIndex("parent");
+        final int detailIndex = cursor.getColumnIndex("detail");
+
+        try {
+            while (cursor.moveToNext()) {
+                final QueryPlan.Step step = new QueryPlan.Step();
+                step.id = idIndex != -1 ? cursor.getInt(idIndex) : steps.size();
+                step.parent = parentIndex != -1 ? cursor.getInt(parentIndex) : 0;
+                step.detail = cursor.getString(detailIndex);
+                parseDetail(step);
+                steps.add(step);
+            }
+        } finally {
+            cursor.close();
+        }
+        return steps;
+    }
+
+    private void parseDetail(QueryPlan.Step step) {
+        final Matcher matcher = STEP_PATTERN.matcher(step.detail.trim());
+        if (!matcher.matches() || getSchema(matcher.group(2)) == null) {
+            // subqueries, temporary b-trees and the like
+            return;
+        }
+
+        step.table = matcher.group(2);
+
+        final String using = matcher.group(3);
+        if (using != null) {
+            final Matcher indexMatcher = INDEX_PATTERN.matcher(using);
+            if (indexMatcher.find()) {
+                step.index = indexMatcher.group(1);
+            } else if (using.contains(PRIMARY_KEY)) {
+                step.index = PRIMARY_KEY;
+            }
+        }
+
+        step.isFullScan = SCAN.equals(matcher.group(1)) && step.index == null;
+    }
+
+    private String suggestIndex(TableSchema schema, String filterText) {
+        final List<String> equalityColumns = new ArrayList<>();
+        final List<String> rangeColumns = new ArrayList<>();
+
+        for (TableSchema.Column column : schema.columns) {
+            if (isIndexed(schema, column)) {
+                continue;
+            }
+
+            if (isFiltered(column.name, EQUALITY_OPERATORS, filterText)) {
+                equalityColumns.add(column.name);
+            } else if (isFiltered(column.name, RANGE_OPERATORS, filterText)) {
+                rangeColumns.add(column.name);
+            }
+        }
+
+        // an index can seek on any number of equalities but only one range
+        final List<String> indexColumns = new ArrayList<>(equalityColumns);
+        if (!rangeColumns.isEmpty()) {
+            indexColumns.add(rangeColumns.get(0));
+        }
+
+        if (indexColumns.isEmpty()) {
+            return null;
+        }
+
+        final List<String> quotedColumns = new ArrayList<>();
+        for (String column : indexColumns) {
+            quotedColumns.add(SchemaCache.quoteIdentifier(column));
+        }
+
+        final String indexName = "index_" + schema.name + "_" + TextUtils.join("_", indexColumns);
+        return "CREATE INDEX " + SchemaCache.quoteIdentifier(indexName) +
+            " ON " + SchemaCache.quoteIdentifier(schema.name) + " (" + TextUtils.join(", ", quotedColumns) + ")";
+    }
+
+    private boolean isIndexed(TableSchema schema, TableSchema.Column column) {
+        if (column.primaryKeyPosition == 1 && INTEGER_TYPE.equalsIgnoreCase(column.type)) {
+            int primaryKeySize = 0;
+            for (TableSchema.Column other : schema.columns) {
+                if (other.primaryKeyPosition > 0) {
+                    primaryKeySize++;
+                }
+            }
+
+            // a single integer primary key is the rowid itself
+            if (primaryKeySize == 1 && schema.hasRowId) {
+                return true;
+            }
+        }
+
+        for (TableSchema.Index index : schema.indexes) {
+            if (!index.isPartial && !index.columns.isEmpty() && column.name.equalsIgnoreCase(index.columns.get(0))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isFiltered(String column, String operators, String filterText) {
+        final Pattern pattern = Pattern.compile(
+            "(?:^|[^\\w\"`\\]])(?:[\\w\"`\\[\\]]+\\.)?[\"`\\[]?" + Pattern.quote(column) + "[\"`\\]]?\\s*" + operators,
+            Pattern.CASE_INSENSITIVE
+        );
+        return pattern.matcher(filterText).find();
+    }
+
+    /**
+     * Whether the step reads every row of a table, directly or through a covering index.
+     */
+    static boolean isTableScan(QueryPlan.Step step) {
+        return step.table != null && step.detail.trim().startsWith(SCAN);
+    }
+
+    private TableSchema getSchema(String tableName) {
+        try {
+            return schemaCache.get(tableName);
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+}
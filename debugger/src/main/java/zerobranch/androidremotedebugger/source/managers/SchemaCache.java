@@ -0,0 +1,227 @@
+/*
+ * Copyright 2020 Arman Sargsyan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zerobranch.androidremotedebugger.source.managers;
+
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import zerobranch.androidremotedebugger.source.models.TableSchema;
+
+/**
+ * Reads table schemas of one connection through the schema pragmas and keeps them
+ * until {@code PRAGMA schema_version} changes, which happens on every schema change
+ * made by any connection.
+ */
+final class SchemaCache {
+    private static final String ROWID = "_rowid_";
+    private static final int HIDDEN_COLUMN = 1;
+
+    private final SQLiteDatabase db;
+    private final Map<String, TableSchema> schemas = new HashMap<>();
+    private long schemaVersion = -1;
+    private boolean isXInfoSupported = true;
+    private boolean isIndexXInfoSupported = true;
+
+    SchemaCache(SQLiteDatabase db) {
+        this.db = db;
+    }
+
+    TableSchema get(String tableName) {
+        final long currentVersion = DatabaseUtils.longForQuery(db, "PRAGMA schema_version", null);
+        if (currentVersion != schemaVersion) {
+            schemas.clear();
+            schemaVersion = currentVersion;
+        }
+
+        TableSchema schema = schemas.get(tableName);
+        if (schema == null) {
+            schema = read(tableName);
+            schemas.put(tableName, schema);
+        }
+        return schema;
+    }
+
+    private TableSchema read(String tableName) {
+        final TableSchema schema = new TableSchema();
+        schema.name = tableName;
+        schema.sql = readSql(tableName);
+        schema.columns = readColumns(tableName);
+        schema.hasRowId = hasRowId(tableName, schema.columns);
+        schema.indexes = readIndexes(tableName);
+        schema.foreignKeys = readForeignKeys(tableName);
+        return schema;
+    }
+
+    private String readSql(String tableName) {
+        final Cursor cursor = db.rawQuery("SELECT sql FROM sqlite_master WHERE type = 'table' AND name = ?",
+            new String[]{tableName});
+
+        try {
+            if (!cursor.moveToFirst() || cursor.isNull(0)) {
+                throw new IllegalArgumentException("Table '" + tableName + "' not found");
+            }
+            return cursor.getString(0);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * A {@code WITHOUT ROWID} table has no rowid to select, so the select fails to prepare.
+     * A real column named {@code _rowid_} hides the rowid, which then cannot be paged by either.
+     */
+    private boolean hasRowId(String tableName, List<TableSchema.Column> columns) {
+        for (TableSchema.Column column : columns) {
+            if (ROWID.equalsIgnoreCase(column.name)) {
+                return false;
+            }
+        }
+
+        try {
+            db.compileStatement("SELECT " + ROWID + " FROM " + quoteIdentifier(tableName) + " LIMIT 0").close();
+            return true;
+        } catch (SQLiteException ex) {
+            return false;
+        }
+    }
+
+    private List<TableSchema.Column> readColumns(String tableName) {
+        final Cursor cursor = queryColumns(tableName);
+        final List<TableSchema.Column> columns = new ArrayList<>();
+
+        final int hiddenIndex = cursor.getColumnIndex("hidden");
+        while (cursor.moveToNext()) {
+            final int hidden = hiddenIndex != -1 ? cursor.getInt(hiddenIndex) : 0;
+            if (hidden == HIDDEN_COLUMN) {
+                continue;
+            }
+
+            final TableSchema.Column column = new TableSchema.Column();
+            column.name = cursor.getString(cursor.getColumnIndex("name"));
+            column.type = cursor.getString(cursor.getColumnIndex("type"));
+            column.isNotNull = cursor.getInt(cursor.getColumnIndex("notnull")) != 0;
+            column.defaultValue = cursor.getString(cursor.getColumnIndex("dflt_value"));
+            column.primaryKeyPosition = cursor.getInt(cursor.getColumnIndex("pk"));
+            column.isGenerated = hidden > HIDDEN_COLUMN;
+            columns.add(column);
+        }
+
+        cursor.close();
+        return columns;
+    }
+
+    // table_xinfo, which also reports generated columns, only exists since SQLite 3.26
+    private Cursor queryColumns(String tableName) {
+        if (isXInfoSupported) {
+            // an unknown pragma is not an error, it just returns no rows
+            final Cursor cursor = db.rawQuery("PRAGMA table_xinfo(" + quoteIdentifier(tableName) + ")", null);
+            if (cursor.getCount() > 0) {
+                return cursor;
+            }
+
+            cursor.close();
+            isXInfoSupported = false;
+        }
+        return db.rawQuery("PRAGMA table_info(" + quoteIdentifier(tableName) + ")", null);
+    }
+
+    private List<TableSchema.Index> readIndexes(String tableName) {
+        final Cursor cursor = db.rawQuery("PRAGMA index_list(" + quoteIdentifier(tableName) + ")", null);
+        final List<TableSchema.Index> indexes = new ArrayList<>();
+
+        final int originIndex = cursor.getColumnIndex("origin");
+        final int partialIndex = cursor.getColumnIndex("partial");
+        while (cursor.moveToNext()) {
+            final TableSchema.Index index = new TableSchema.Index();
+            index.name = cursor.getString(cursor.getColumnIndex("name"));
+            index.isUnique = cursor.getInt(cursor.getColumnIndex("unique")) != 0;
+            index.origin = originIndex != -1 ? cursor.getString(originIndex) : null;
+            index.isPartial = partialIndex != -1 && cursor.getInt(partialIndex) != 0;
+            indexes.add(index);
+        }
+        cursor.close();
+
+        for (TableSchema.Index index : indexes) {
+            readIndexColumns(index);
+        }
+        return indexes;
+    }
+
+    /**
+     * The collations come from index_xinfo, which only exists since SQLite 3.9.
+     * Before that they are left {@code null}, as they are not known.
+     */
+    private void readIndexColumns(TableSchema.Index index) {
+        index.columns = new ArrayList<>();
+        index.collations = new ArrayList<>();
+
+        if (isIndexXInfoSupported) {
+            // every index has at least the rowid as an extra column, so no rows means no pragma
+            final Cursor cursor = db.rawQuery("PRAGMA index_xinfo(" + quoteIdentifier(index.name) + ")", null);
+            if (cursor.getCount() > 0) {
+                final int keyIndex = cursor.getColumnIndex("key");
+                while (cursor.moveToNext()) {
+                    if (cursor.getInt(keyIndex) != 0) {
+                        index.columns.add(cursor.getString(cursor.getColumnIndex("name")));
+                        index.collations.add(cursor.getString(cursor.getColumnIndex("coll")));
+                    }
+                }
+
+                cursor.close();
+                return;
+            }
+
+            cursor.close();
+            isIndexXInfoSupported = false;
+        }
+
+        final Cursor cursor = db.rawQuery("PRAGMA index_info(" + quoteIdentifier(index.name) + ")", null);
+        while (cursor.moveToNext()) {
+            index.columns.add(cursor.getString(cursor.getColumnIndex("name")));
+            index.collations.add(null);
+        }
+        cursor.close();
+    }
+
+    private List<TableSchema.ForeignKey> readForeignKeys(String tableName) {
+        final Cursor cursor = db.rawQuery("PRAGMA foreign_key_list(" + quoteIdentifier(tableName) + ")", null);
+        final List<TableSchema.ForeignKey> foreignKeys = new ArrayList<>();
+
+        while (cursor.moveToNext()) {
+            final TableSchema.ForeignKey foreignKey = new TableSchema.ForeignKey();
+            foreignKey.table = cursor.getString(cursor.getColumnIndex("table"));
+            foreignKey.from = cursor.getString(cursor.getColumnIndex("from"));
+            foreignKey.to = cursor.getString(cursor.getColumnIndex("to"));
+            foreignKey.onUpdate = cursor.getString(cursor.getColumnIndex("on_update"));
+            foreignKey.onDelete = cursor.getString(cursor.getColumnIndex("on_delete"));
+            foreignKeys.add(foreignKey);
+        }
+
+        cursor.close();
+        return foreignKeys;
+    }
+
+    static String quoteIdentifier(String name) {
+        return "\"" + name.replace("\"", "\"\"") + "\"";
+    }
+}
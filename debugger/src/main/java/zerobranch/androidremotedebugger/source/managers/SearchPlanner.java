@@ -0,0 +1,177 @@
+/*
+ * Copyright 2020 Arman Sargsyan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zerobranch.androidremotedebugger.source.managers;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.CancellationSignal;
+import android.os.SystemClock;
+import android.text.TextUtils;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import zerobranch.androidremotedebugger.source.models.TableSchema;
+import zerobranch.androidremotedebugger.utils.InternalUtils;
+
+/**
+ * Searches a table for a text. Columns that lead an index are tried first with
+ * conditions SQLite can answer by index seeks: numeric equality on integer columns
+ * and exact or prefix matches on the others, where the index compares texts with
+ * {@code BINARY}. Only when they find nothing is every column scanned with {@code LIKE '%text%'}.
+ */
+final class SearchPlanner {
+    private static final String ROWID = "_rowid_";
+    private static final String INTEGER_AFFINITY = "int";
+    private static final String BINARY_COLLATION = "BINARY";
+
+    private final SQLiteDatabase db;
+
+    SearchPlanner(SQLiteDatabase db) {
+        this.db = db;
+    }
+
+    SearchResult search(TableSchema schema, String text, int limit, CancellationSignal cancellationSignal) {
+        final long startTime = SystemClock.elapsedRealtime();
+
+        final List<String> arguments = new ArrayList<>();
+        final String indexCondition = getIndexCondition(schema, text, arguments);
+        if (indexCondition != null) {
+            final Cursor cursor = query(schema.name, indexCondition, arguments, limit, cancellationSignal);
+            final int count = getCount(cursor);
+            if (count > 0) {
+                return new SearchResult(cursor, SearchResult.STRATEGY_INDEX,
+                    SystemClock.elapsedRealtime() - startTime, count >= limit);
+            }
+            cursor.close();
+        }
+
+        arguments.clear();
+        final Cursor cursor = query(schema.name, getScanCondition(schema, text, arguments), arguments, limit,
+            cancellationSignal);
+        final int count = getCount(cursor);
+        return new SearchResult(cursor, SearchResult.STRATEGY_SCAN,
+            SystemClock.elapsedRealtime() - startTime, count >= limit);
+    }
+
+    // a cancelled query fails while it is counted, the cursor is not handed out then
+    private int getCount(Cursor cursor) {
+        try {
+            return cursor.getCount();
+        } catch (RuntimeException ex) {
+            cursor.close();
+            throw ex;
+        }
+    }
+
+    private Cursor query(String tableName,
+                         String condition,
+                         List<String> arguments,
+                         int limit,
+                         CancellationSignal cancellationSignal) {
+        return db.rawQuery("SELECT * FROM " + SchemaCache.quoteIdentifier(tableName) +
+            " WHERE " + condition + " LIMIT " + limit, arguments.toArray(new String[0]), cancellationSignal);
+    }
+
+    private String getIndexCondition(TableSchema schema, String text, List<String> arguments) {
+        if (text.isEmpty()) {
+            return null;
+        }
+
+        final boolean isInteger = InternalUtils.isLong(text);
+        final List<String> conditions = new ArrayList<>();
+
+        if (schema.hasRowId && isInteger) {
+            conditions.add(ROWID + " = CAST(? AS INTEGER)");
+            arguments.add(text);
+        }
+
+        for (TableSchema.Column column : getIndexedColumns(schema)) {
+            final String name = SchemaCache.quoteIdentifier(column.name);
+            if (isIntegerAffinity(column)) {
+                if (isInteger) {
+                    conditions.add(name + " = CAST(? AS INTEGER)");
+                    arguments.add(text);
+                }
+            } else if (isBinaryIndexed(schema, column.name)) {
+                // a column declared with another collation would otherwise compare the range in that one
+                final String binaryName = name + " COLLATE " + BINARY_COLLATION;
+                conditions.add("(" + binaryName + " >= ? AND " + binaryName + " < ?)");
+                arguments.add(text);
+                arguments.add(getPrefixUpperBound(text));
+            }
+        }
+
+        return conditions.isEmpty() ? null : TextUtils.join(" OR ", conditions);
+    }
+
+    private String getScanCondition(TableSchema schema, String text, List<String> arguments) {
+        final List<String> conditions = new ArrayList<>();
+        for (TableSchema.Column column : schema.columns) {
+            conditions.add(SchemaCache.quoteIdentifier(column.name) + " LIKE ?");
+            arguments.add("%" + text + "%");
+        }
+        return TextUtils.join(" OR ", conditions);
+    }
+
+    // only the leading column of an index can be used for a seek
+    private List<TableSchema.Column> getIndexedColumns(TableSchema schema) {
+        final Set<String> leadingColumns = new HashSet<>();
+        for (TableSchema.Index index : schema.indexes) {
+            if (!index.isPartial && !index.columns.isEmpty() && index.columns.get(0) != null) {
+                leadingColumns.add(index.columns.get(0));
+            }
+        }
+
+        final List<TableSchema.Column> columns = new ArrayList<>();
+        for (TableSchema.Column column : schema.columns) {
+            if (leadingColumns.contains(column.name)) {
+                columns.add(column);
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * A range in BINARY order can only seek an index in BINARY order; on a NOCASE index it would scan.
+     * Before SQLite 3.9 the collation of an index is not known, so its column is left to the scan.
+     */
+    private boolean isBinaryIndexed(TableSchema schema, String columnName) {
+        for (TableSchema.Index index : schema.indexes) {
+            final boolean isLeading = !index.isPartial && !index.columns.isEmpty()
+                && columnName.equals(index.columns.get(0));
+            if (isLeading && BINARY_COLLATION.equalsIgnoreCase(index.collations.get(0))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isIntegerAffinity(TableSchema.Column column) {
+        return column.type != null && column.type.toLowerCase().contains(INTEGER_AFFINITY);
+    }
+
+    // the smallest text greater than every text that starts with the prefix
+    private String getPrefixUpperBound(String prefix) {
+        final char last = prefix.charAt(prefix.length() - 1);
+        if (last == Character.MAX_VALUE) {
+            return prefix + Character.MAX_VALUE;
+        }
+        return prefix.substring(0, prefix.length() - 1) + (char) (last + 1);
+    }
+}
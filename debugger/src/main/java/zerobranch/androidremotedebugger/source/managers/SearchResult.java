@@ -0,0 +1,55 @@
+/*
+ * Copyright 2020 Arman Sargsyan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zerobranch.androidremotedebugger.source.managers;
+
+import android.database.Cursor;
+
+/**
+ * Rows found by {@link DatabaseManager#search(String, String, int)} together with
+ * the way they were found. The cursor must be closed by the caller.
+ */
+public final class SearchResult {
+    public static final String STRATEGY_INDEX = "index";
+    public static final String STRATEGY_SCAN = "scan";
+
+    private final Cursor cursor;
+    private final String strategy;
+    private final long durationMs;
+    private final boolean isTruncated;
+
+    SearchResult(Cursor cursor, String strategy, long durationMs, boolean isTruncated) {
+        this.cursor = cursor;
+        this.strategy = strategy;
+        this.durationMs = durationMs;
+        this.isTruncated = isTruncated;
+    }
+
+    public Cursor getCursor() {
+        return cursor;
+    }
+
+    public String getStrategy() {
+        return strategy;
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    public boolean isTruncated() {
+        return isTruncated;
+    }
+}
@@ -29,9 +29,11 @@ public class HttpLogRequestMapper {
         httpLogModel.queryId = "id: " + request.queryId;
         httpLogModel.method = request.method;
         httpLogModel.time = Constants.defaultDateFormat.format(request.time);
+        httpLogModel.timestamp = request.time;
         httpLogModel.requestContentType = request.requestContentType;
         httpLogModel.bodySize = request.bodySize == null ? null : request.bodySize + " byte";
-        httpLogModel.port = request.port;
+        httpLogModel.bodySizeBytes = request.bodySize;
+        httpLogModel.port = String.valueOf(request.port);
         httpLogModel.ip = request.ip;
         httpLogModel.fullIpAddress = request.ip == null ? null : request.ip + ":" + request.port;
         httpLogModel.url = request.url;
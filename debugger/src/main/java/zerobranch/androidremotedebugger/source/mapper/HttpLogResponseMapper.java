@@ -29,18 +29,22 @@ public class HttpLogResponseMapper {
         httpLogModel.queryId = "id: " + response.queryId;
         httpLogModel.method = response.method;
         httpLogModel.time = Constants.defaultDateFormat.format(response.time);
+        httpLogModel.timestamp = response.time;
         httpLogModel.code = response.code;
         httpLogModel.message = response.message;
         httpLogModel.fullStatus = response.code == -1 ? null : response.code + " " + response.message;
         httpLogModel.duration = response.duration == null ? null : response.duration + " ms";
         httpLogModel.bodySize = response.bodySize == null ? null : response.bodySize + " byte";
-        httpLogModel.port = response.port;
+        httpLogModel.durationMs = response.duration;
+        httpLogModel.bodySizeBytes = response.bodySize;
+        httpLogModel.port = String.valueOf(response.port);
         httpLogModel.ip = response.ip;
         httpLogModel.fullIpAddress = response.ip == null ? null : response.ip + ":" + response.port;
         httpLogModel.url = response.url;
         httpLogModel.errorMessage = response.errorMessage;
         httpLogModel.body = response.body;
         httpLogModel.queryType = QueryType.RESPONSE;
+        httpLogModel.timings = response.timings;
 
         httpLogModel.headers = new ArrayList<>();
         ArrayList<String> headers = response.headers;
@@ -18,6 +18,7 @@ package zerobranch.androidremotedebugger.source.models;
 import zerobranch.androidremotedebugger.source.local.Constants;
 
 public class LogModel {
+    public long id;
     public String time;
     public String level;
     public String tag;
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2020 Arman Sargsyan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zerobranch.androidremotedebugger.source.models;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class QueryPlan {
+    public List<Step> steps = new ArrayList<>();
+    public List<String> suggestedIndexes = new ArrayList<>();
+    public boolean hasFullScan;
+    public long rowsScanned;
+    public int rowsReturned;
+    public long durationMs;
+    public boolean isCancelled;
+    public String cancelReason;
+
+    public static class Step {
+        public int id;
+        public int parent;
+        public String detail;
+        public String table;
+        public String index;
+        public boolean isFullScan;
+        public Long scannedRows;
+    }
+}
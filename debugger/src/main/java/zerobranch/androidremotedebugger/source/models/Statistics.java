@@ -0,0 +1,37 @@
+/*
+ * Copyright 2020 Arman Sargsyan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zerobranch.androidremotedebugger.source.models;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class Statistics {
+    public final List<Item> items = new ArrayList<>();
+
+    public void add(String name, Object value) {
+        items.add(new Item(name, String.valueOf(value)));
+    }
+
+    public static class Item {
+        public final String name;
+        public final String value;
+
+        public Item(String name, String value) {
+            this.name = name;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2020 Arman Sargsyan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zerobranch.androidremotedebugger.source.models;
+
+import java.util.List;
+
+public class TableSchema {
+    public String name;
+    public String sql;
+    public boolean hasRowId;
+    public List<Column> columns;
+    public List<Index> indexes;
+    public List<ForeignKey> foreignKeys;
+
+    public static class Column {
+        public String name;
+        public String type;
+        public boolean isNotNull;
+        public String defaultValue;
+        public int primaryKeyPosition;
+        public boolean isGenerated;
+    }
+
+    public static class Index {
+        public String name;
+        public boolean isUnique;
+        public boolean isPartial;
+        public String origin;
+        public List<String> columns;
+        public List<String> collations;
+    }
+
+    public static class ForeignKey {
+        public String table;
+        public String from;
+        public String to;
+        public String onUpdate;
+        public String onDelete;
+    }
+}
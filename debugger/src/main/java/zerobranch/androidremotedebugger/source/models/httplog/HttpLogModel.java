@@ -22,6 +22,7 @@ import java.util.List;
 public class HttpLogModel {
     public long id;
     public String time;
+    public long timestamp;
     public String queryId;
     public String url;
     public String method;
@@ -34,10 +35,13 @@ public class HttpLogModel {
     public String requestContentType;
     public String duration;
     public String bodySize;
+    public Long durationMs;
+    public Long bodySizeBytes;
     public String body;
     public String errorMessage;
     public QueryType queryType;
     public List<String> headers;
+    public HttpLogTimings timings;
 
     @NotNull
     @Override
@@ -45,6 +49,7 @@ public class HttpLogModel {
         return "HttpLogModel{" +
                 "id=" + id +
                 ", time='" + time + '\'' +
+                ", timestamp=" + timestamp +
                 ", queryId='" + queryId + '\'' +
                 ", url='" + url + '\'' +
                 ", method='" + method + '\'' +
@@ -57,10 +62,13 @@ public class HttpLogModel {
                 ", requestContentType='" + requestContentType + '\'' +
                 ", duration='" + duration + '\'' +
                 ", bodySize='" + bodySize + '\'' +
+                ", durationMs=" + durationMs +
+                ", bodySizeBytes=" + bodySizeBytes +
                 ", body='" + body + '\'' +
                 ", errorMessage='" + errorMessage + '\'' +
                 ", queryType=" + queryType +
                 ", headers=" + headers +
+                ", timings=" + timings +
                 '}';
     }
 }
\ No newline at end of file
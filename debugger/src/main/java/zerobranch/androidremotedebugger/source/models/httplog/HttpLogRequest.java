@@ -24,9 +24,9 @@ public class HttpLogRequest {
     public String url;
     public String method;
     public String ip;
-    public String port;
+    public int port;
     public String requestContentType;
-    public String bodySize;
+    public Long bodySize;
     public String body;
     public ArrayList<String> headers;
 }
@@ -22,14 +22,15 @@ public class HttpLogResponse {
     public long time;
     public String queryId;
     public String url;
-    public String port;
+    public int port;
     public String ip;
     public String method;
     public int code = -1;
     public String message;
-    public String duration;
-    public String bodySize;
+    public Long duration;
+    public Long bodySize;
     public String body;
     public String errorMessage;
+    public HttpLogTimings timings;
     public ArrayList<String> headers;
 }
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2020 Arman Sargsyan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zerobranch.androidremotedebugger.source.models.httplog;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class HttpLogTimings {
+    public List<Phase> phases = new ArrayList<>();
+    public long totalMs;
+
+    @NotNull
+    @Override
+    public String toString() {
+        return "HttpLogTimings{" +
+                "phases=" + phases +
+                ", totalMs=" + totalMs +
+                '}';
+    }
+
+    public static class Phase {
+        public String name;
+        public long startMs;
+        public long durationMs;
+
+        @NotNull
+        @Override
+        public String toString() {
+            return name + ": " + startMs + "+" + durationMs + " ms";
+        }
+    }
+}
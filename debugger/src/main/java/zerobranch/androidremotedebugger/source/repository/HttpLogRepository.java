@@ -15,57 +15,119 @@
  */
 package zerobranch.androidremotedebugger.source.repository;
 
-import android.content.ContentValues;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
 import android.text.TextUtils;
 
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 import zerobranch.androidremotedebugger.source.local.StatusCodeFilter;
 import zerobranch.androidremotedebugger.source.models.httplog.HttpLogModel;
+import zerobranch.androidremotedebugger.source.models.httplog.HttpLogTimings;
 import zerobranch.androidremotedebugger.source.models.httplog.QueryType;
 
 import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public class HttpLogRepository {
     private static final String REMOTE_NET_LOGS_TABLE_NAME = "net_log_data";
+    private static final String[] INSERT_COLUMNS = new String[]{
+            NetLogTable.CODE,
+            NetLogTable.TIME,
+            NetLogTable.DURATION,
+            NetLogTable.BODY_SIZE,
+            NetLogTable.QUERY_ID,
+            NetLogTable.PORT,
+            NetLogTable.METHOD,
+            NetLogTable.QUERY_TYPE,
+            NetLogTable.MESSAGE,
+            NetLogTable.FULL_STATUS,
+            NetLogTable.FULL_IP_ADDRESS,
+            NetLogTable.REQUEST_CONTENT_TYPE,
+            NetLogTable.IP,
+            NetLogTable.URL,
+            NetLogTable.BODY,
+            NetLogTable.ERROR_MESSAGE,
+            NetLogTable.HEADERS,
+            NetLogTable.TIMINGS,
+            NetLogTable.CREATED_AT
+    };
     private final SQLiteDatabase database;
     private final Gson gson = new Gson();
+    private final RingBufferTable ringBuffer;
+    private SQLiteStatement insertStatement;
 
     public HttpLogRepository(SQLiteDatabase database) {
         this.database = database;
+        this.ringBuffer = new RingBufferTable(database, REMOTE_NET_LOGS_TABLE_NAME, NetLogTable.ID, NetLogTable.CREATED_AT);
     }
 
-    public long add(HttpLogModel model) {
-        ContentValues values = new ContentValues();
-        values.put(NetLogTable.CODE, model.code);
-        values.put(NetLogTable.TIME, model.time);
-        values.put(NetLogTable.DURATION, model.duration);
-        values.put(NetLogTable.BODY_SIZE, model.bodySize);
-        values.put(NetLogTable.QUERY_ID, model.queryId);
-        values.put(NetLogTable.PORT, model.port);
-        values.put(NetLogTable.METHOD, model.method);
-        values.put(NetLogTable.QUERY_TYPE, model.queryType.name());
-        values.put(NetLogTable.MESSAGE, model.message);
-        values.put(NetLogTable.FULL_STATUS, model.fullStatus);
-        values.put(NetLogTable.FULL_IP_ADDRESS, model.fullIpAddress);
-        values.put(NetLogTable.REQUEST_CONTENT_TYPE, model.requestContentType);
-        values.put(NetLogTable.IP, model.ip);
-        values.put(NetLogTable.URL, model.url);
-        values.put(NetLogTable.BODY, model.body);
-        values.put(NetLogTable.ERROR_MESSAGE, model.errorMessage);
-        values.put(NetLogTable.HEADERS, gson.toJson(model.headers));
-
-        return database.insert(REMOTE_NET_LOGS_TABLE_NAME, null, values);
+    public void add(HttpLogModel model) {
+        addAll(Collections.singletonList(model));
+    }
+
+    public void addAll(List<HttpLogModel> models) {
+        if (insertStatement == null) {
+            insertStatement = database.compileStatement(createInsertQuery());
+        }
+
+        final long createdAt = System.currentTimeMillis();
+
+        database.beginTransaction();
+        try {
+            for (HttpLogModel model : models) {
+                insertStatement.clearBindings();
+
+                if (model.code != null) {
+                    insertStatement.bindLong(1, model.code);
+                }
+
+                insertStatement.bindLong(2, model.timestamp);
+                bindLong(3, model.durationMs);
+                bindLong(4, model.bodySizeBytes);
+                bindText(5, model.queryId);
+                bindLong(6, parsePort(model.port));
+                bindText(7, model.method);
+                bindText(8, model.queryType.name());
+                bindText(9, model.message);
+                bindText(10, model.fullStatus);
+                bindText(11, model.fullIpAddress);
+                bindText(12, model.requestContentType);
+                bindText(13, model.ip);
+                bindText(14, model.url);
+                bindText(15, model.body);
+                bindText(16, model.errorMessage);
+                bindText(17, gson.toJson(model.headers));
+                bindText(18, model.timings == null ? null : gson.toJson(model.timings));
+                insertStatement.bindLong(19, createdAt);
+
+                model.id = insertStatement.executeInsert();
+            }
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
     }
 
     public void clearAll() {
         database.delete(REMOTE_NET_LOGS_TABLE_NAME, null, null);
     }
 
+    public long getCount() {
+        return ringBuffer.getCount();
+    }
+
+    public int trim(int maxRows, long minCreatedAt, int maxChunk) {
+        return ringBuffer.trim(maxRows, minCreatedAt, maxChunk);
+    }
+
+    public int trimOldest(int count) {
+        return ringBuffer.deleteOldest(count);
+    }
+
     public void createHttpLogsTable(SQLiteDatabase db) {
         final String query = "create table " + REMOTE_NET_LOGS_TABLE_NAME + " (" +
                 NetLogTable.ID + " integer primary key autoincrement, " +
@@ -76,23 +138,41 @@ public class HttpLogRepository {
                 NetLogTable.FULL_STATUS + " text," +
                 NetLogTable.FULL_IP_ADDRESS + " text," +
                 NetLogTable.QUERY_TYPE + " text," +
-                NetLogTable.TIME + " text," +
-                NetLogTable.DURATION + " text," +
+                NetLogTable.TIME + " integer," +
+                NetLogTable.DURATION + " integer," +
                 NetLogTable.REQUEST_CONTENT_TYPE + " text," +
-                NetLogTable.BODY_SIZE + " text," +
-                NetLogTable.PORT + " text," +
+                NetLogTable.BODY_SIZE + " integer," +
+                NetLogTable.PORT + " integer," +
                 NetLogTable.IP + " text," +
                 NetLogTable.URL + " text," +
                 NetLogTable.BODY + " text," +
                 NetLogTable.ERROR_MESSAGE + " text," +
-                NetLogTable.HEADERS + " text);";
+                NetLogTable.HEADERS + " text," +
+                NetLogTable.TIMINGS + " text," +
+                NetLogTable.CREATED_AT + " integer);";
         db.execSQL(query);
+
+        // duration and body_size have no index: the page reads newest first by _id and stops at
+        // the limit, an index on a filtered column could not give that order, so it would only slow inserts
+        final String[] indexedColumns = new String[]{
+                NetLogTable.CODE,
+                NetLogTable.QUERY_ID,
+                NetLogTable.TIME
+        };
+
+        for (String column : indexedColumns) {
+            db.execSQL("create index " + REMOTE_NET_LOGS_TABLE_NAME + "_" + column + "_idx on " +
+                    REMOTE_NET_LOGS_TABLE_NAME + " (" + column + ");");
+        }
     }
 
-    public List<HttpLogModel> getHttpLogs(int offset,
+    public List<HttpLogModel> getHttpLogs(long afterId,
+                                          long beforeId,
                                           int limit,
                                           StatusCodeFilter statusCodeFilter,
                                           boolean isOnlyErrors,
+                                          long minDuration,
+                                          long minBodySize,
                                           String search
     ) {
         final StringBuilder query = new StringBuilder()
@@ -127,23 +207,36 @@ public class HttpLogRepository {
                     .append(")");
         }
 
+        if (afterId > 0) {
+            appendCondition(conditionBuilder, NetLogTable.ID + " > " + afterId);
+        }
+
+        if (beforeId > 0) {
+            appendCondition(conditionBuilder, NetLogTable.ID + " < " + beforeId);
+        }
+
+        if (minDuration > 0) {
+            appendCondition(conditionBuilder, NetLogTable.DURATION + " >= " + minDuration);
+        }
+
+        if (minBodySize > 0) {
+            appendCondition(conditionBuilder, NetLogTable.BODY_SIZE + " >= " + minBodySize);
+        }
+
         if (!TextUtils.isEmpty(search)) {
             final StringBuilder searchBuilder = new StringBuilder();
 
+            // only text columns, the integer ones would match by their digits,
+            // the status code is still found through full_status
             String[] tables = new String[]{
                     NetLogTable.QUERY_ID,
                     NetLogTable.METHOD,
-                    NetLogTable.TIME,
-                    NetLogTable.CODE,
                     NetLogTable.MESSAGE,
                     NetLogTable.FULL_STATUS,
                     NetLogTable.FULL_IP_ADDRESS,
                     NetLogTable.REQUEST_CONTENT_TYPE,
-                    NetLogTable.PORT,
                     NetLogTable.IP,
                     NetLogTable.URL,
-                    NetLogTable.BODY_SIZE,
-                    NetLogTable.DURATION,
                     NetLogTable.BODY,
                     NetLogTable.ERROR_MESSAGE,
                     NetLogTable.HEADERS
@@ -158,29 +251,22 @@ public class HttpLogRepository {
                 arguments.add("%".concat(search).concat("%"));
             }
 
-            if (conditionBuilder.length() != 0) {
-                conditionBuilder
-                        .append(" and (")
-                        .append(searchBuilder)
-                        .append(")");
-            } else {
-                conditionBuilder.append(searchBuilder);
-            }
+            appendCondition(conditionBuilder, "(" + searchBuilder + ")");
         }
 
         if (conditionBuilder.length() != 0) {
             query.append(" where ").append(conditionBuilder);
         }
 
+        // walking backwards from beforeId takes the newest rows first, they are reversed below
+        final boolean isBackward = beforeId > 0 && afterId <= 0;
+
         query.append(" order by ")
                 .append(NetLogTable.ID)
+                .append(isBackward ? " desc" : " asc")
                 .append(" limit ")
                 .append(limit);
 
-        if (offset != -1) {
-            query.append(" offset ").append(offset);
-        }
-
         final Cursor cursor = database.rawQuery(query.toString(), arguments.toArray(new String[0]));
         final List<HttpLogModel> logModels = new ArrayList<>();
 
@@ -195,10 +281,10 @@ public class HttpLogRepository {
             httpLogModel.code = (code != 0) ? code : null;
 
             httpLogModel.message = cursor.getString(cursor.getColumnIndex(NetLogTable.MESSAGE));
-            httpLogModel.time = cursor.getString(cursor.getColumnIndex(NetLogTable.TIME));
-            httpLogModel.duration = cursor.getString(cursor.getColumnIndex(NetLogTable.DURATION));
+            httpLogModel.timestamp = cursor.getLong(cursor.getColumnIndex(NetLogTable.TIME));
+            httpLogModel.durationMs = getLongOrNull(cursor, NetLogTable.DURATION);
             httpLogModel.requestContentType = cursor.getString(cursor.getColumnIndex(NetLogTable.REQUEST_CONTENT_TYPE));
-            httpLogModel.bodySize = cursor.getString(cursor.getColumnIndex(NetLogTable.BODY_SIZE));
+            httpLogModel.bodySizeBytes = getLongOrNull(cursor, NetLogTable.BODY_SIZE);
             httpLogModel.port = cursor.getString(cursor.getColumnIndex(NetLogTable.PORT));
             httpLogModel.ip = cursor.getString(cursor.getColumnIndex(NetLogTable.IP));
             httpLogModel.fullIpAddress = cursor.getString(cursor.getColumnIndex(NetLogTable.FULL_IP_ADDRESS));
@@ -209,14 +295,80 @@ public class HttpLogRepository {
 
             Type listType = new TypeToken<List<String>>() {}.getType();
             httpLogModel.headers = gson.fromJson(cursor.getString(cursor.getColumnIndex(NetLogTable.HEADERS)), listType);
+            httpLogModel.timings = gson.fromJson(cursor.getString(cursor.getColumnIndex(NetLogTable.TIMINGS)), HttpLogTimings.class);
 
             logModels.add(httpLogModel);
         }
 
         cursor.close();
+
+        if (isBackward) {
+            Collections.reverse(logModels);
+        }
         return logModels;
     }
 
+    private String createInsertQuery() {
+        final StringBuilder query = new StringBuilder()
+                .append("insert into ")
+                .append(REMOTE_NET_LOGS_TABLE_NAME)
+                .append(" (");
+
+        for (int i = 0; i < INSERT_COLUMNS.length; i++) {
+            if (i != 0) {
+                query.append(", ");
+            }
+            query.append(INSERT_COLUMNS[i]);
+        }
+
+        query.append(") values (");
+
+        for (int i = 0; i < INSERT_COLUMNS.length; i++) {
+            if (i != 0) {
+                query.append(", ");
+            }
+            query.append("?");
+        }
+
+        return query.append(")").toString();
+    }
+
+    private void appendCondition(StringBuilder conditionBuilder, String condition) {
+        if (conditionBuilder.length() != 0) {
+            conditionBuilder.append(" and ");
+        }
+        conditionBuilder.append(condition);
+    }
+
+    private Long getLongOrNull(Cursor cursor, String column) {
+        final int index = cursor.getColumnIndex(column);
+        return cursor.isNull(index) ? null : cursor.getLong(index);
+    }
+
+    private Long parsePort(String port) {
+        try {
+            return port == null ? null : Long.parseLong(port);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void bindLong(int index, Long value) {
+        if (value == null) {
+            insertStatement.bindNull(index);
+        } else {
+            insertStatement.bindLong(index, value);
+        }
+    }
+
+    private void bindText(int index, String value) {
+        if (value == null) {
+            insertStatement.bindNull(index);
+        } else {
+            insertStatement.bindString(index, value);
+        }
+    }
+
     private interface NetLogTable {
         String ID = "_id";
         String QUERY_ID = "query_id";
@@ -235,6 +387,8 @@ public class HttpLogRepository {
         String BODY_SIZE = "body_size";
         String BODY = "body";
         String HEADERS = "headers";
+        String TIMINGS = "timings";
         String ERROR_MESSAGE = "error_message";
+        String CREATED_AT = "created_at";
     }
 }
\ No newline at end of file
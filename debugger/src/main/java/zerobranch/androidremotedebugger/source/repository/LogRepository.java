@@ -15,110 +15,147 @@
  */
 package zerobranch.androidremotedebugger.source.repository;
 
-import android.content.ContentValues;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
 import android.text.TextUtils;
 
+import zerobranch.androidremotedebugger.source.local.LogFilter;
 import zerobranch.androidremotedebugger.source.models.LogModel;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public final class LogRepository {
     private static final String REMOTE_LOGS_TABLE_NAME = "log_data";
+    private static final String REMOTE_LOGS_FTS_TABLE_NAME = "log_data_fts";
     private final SQLiteDatabase database;
+    private final RingBufferTable ringBuffer;
+    private SQLiteStatement insertStatement;
 
     public LogRepository(SQLiteDatabase database) {
         this.database = database;
+        this.ringBuffer = new RingBufferTable(database, REMOTE_LOGS_TABLE_NAME, LogTable.ID, LogTable.CREATED_AT);
     }
 
     public void addLog(LogModel model) {
-        ContentValues values = new ContentValues();
-        values.put(LogTable.TIME, model.time);
-        values.put(LogTable.LEVEL, model.level);
-        values.put(LogTable.TAG, model.tag);
-        values.put(LogTable.MESSAGE, model.message);
+        addLogs(Collections.singletonList(model));
+    }
+
+    public void addLogs(List<LogModel> models) {
+        if (insertStatement == null) {
+            insertStatement = database.compileStatement("insert into " + REMOTE_LOGS_TABLE_NAME + " (" +
+                    LogTable.TIME + ", " +
+                    LogTable.LEVEL + ", " +
+                    LogTable.TAG + ", " +
+                    LogTable.MESSAGE + ", " +
+                    LogTable.CREATED_AT + ") values (?, ?, ?, ?, ?)");
+        }
 
-        database.insert(REMOTE_LOGS_TABLE_NAME, null, values);
+        final long createdAt = System.currentTimeMillis();
+
+        database.beginTransaction();
+        try {
+            for (LogModel model : models) {
+                bindText(insertStatement, 1, model.time);
+                bindText(insertStatement, 2, model.level);
+                bindText(insertStatement, 3, model.tag);
+                bindText(insertStatement, 4, model.message);
+                insertStatement.bindLong(5, createdAt);
+                model.id = insertStatement.executeInsert();
+            }
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
     }
 
-    public List<LogModel> getLogsByFilter(int offset, int limit, String level, String tag, String search) {
+    public List<LogModel> getLogsByFilter(long afterId,
+                                          long beforeId,
+                                          int limit,
+                                          String level,
+                                          String tag,
+                                          String search,
+                                          boolean isSubstringSearch) {
         final List<String> arguments = new ArrayList<>();
+        final List<String> conditions = new ArrayList<>();
 
         final StringBuilder query = new StringBuilder()
                 .append("select ")
+                .append(LogTable.ID + ", ")
                 .append(LogTable.TIME + ", ")
                 .append(LogTable.LEVEL + ", ")
                 .append(LogTable.TAG + ", ")
                 .append(LogTable.MESSAGE)
                 .append(" from " + REMOTE_LOGS_TABLE_NAME);
 
-        if (!TextUtils.isEmpty(level) || !TextUtils.isEmpty(tag) || !TextUtils.isEmpty(search)) {
-            query.append(" where ");
+        if (afterId > 0) {
+            conditions.add(LogTable.ID + " > " + afterId);
+        }
+
+        if (beforeId > 0) {
+            conditions.add(LogTable.ID + " < " + beforeId);
         }
 
         if (!TextUtils.isEmpty(level)) {
-            query.append(" lower (")
-                    .append(LogTable.LEVEL)
-                    .append(")")
-                    .append(" like ")
-                    .append("lower (?)");
+            conditions.add("lower (" + LogTable.LEVEL + ") like lower (?)");
             arguments.add("%".concat(level).concat("%"));
         }
 
         if (!TextUtils.isEmpty(tag)) {
-            if (!TextUtils.isEmpty(level)) {
-                query.append(" and ");
-            }
-
-            query.append(" lower (")
-                    .append(LogTable.TAG)
-                    .append(")")
-                    .append(" like ")
-                    .append("lower (?)");
+            conditions.add("lower (" + LogTable.TAG + ") like lower (?)");
             arguments.add(tag.concat("%"));
         }
 
         if (!TextUtils.isEmpty(search)) {
-            if (!TextUtils.isEmpty(level) || !TextUtils.isEmpty(tag)) {
-                query.append(" and ");
-            }
-
-            query.append(" (");
-
-            String[] tables = new String[]{
-                    LogTable.LEVEL,
-                    LogTable.MESSAGE,
-                    LogTable.TAG,
-                    LogTable.TIME
-            };
-
-            for (int i = 0; i < tables.length; i++) {
-                if (i != 0) {
-                    query.append(" or ");
+            final String matchQuery = isSubstringSearch ? null : toMatchQuery(search);
+
+            if (matchQuery != null) {
+                conditions.add(LogTable.ID + " in (select docid from " + REMOTE_LOGS_FTS_TABLE_NAME +
+                        " where " + REMOTE_LOGS_FTS_TABLE_NAME + " match ?)");
+                arguments.add(matchQuery);
+            } else {
+                final StringBuilder searchCondition = new StringBuilder("(");
+
+                String[] tables = new String[]{
+                        LogTable.LEVEL,
+                        LogTable.MESSAGE,
+                        LogTable.TAG,
+                        LogTable.TIME
+                };
+
+                for (int i = 0; i < tables.length; i++) {
+                    if (i != 0) {
+                        searchCondition.append(" or ");
+                    }
+
+                    searchCondition.append(tables[i]).append(" like ?");
+                    arguments.add("%".concat(search).concat("%"));
                 }
-
-                query.append(tables[i]).append(" like ?");
-                arguments.add("%".concat(search).concat("%"));
+                conditions.add(searchCondition.append(")").toString());
             }
-            query.append(") ");
         }
 
+        if (!conditions.isEmpty()) {
+            query.append(" where ").append(TextUtils.join(" and ", conditions));
+        }
+
+        // walking backwards from beforeId takes the newest rows first, they are reversed below
+        final boolean isBackward = beforeId > 0 && afterId <= 0;
+
         query.append(" order by ")
-                .append(LogTable.TIME)
+                .append(LogTable.ID)
+                .append(isBackward ? " desc" : " asc")
                 .append(" limit ")
                 .append(limit);
 
-        if (offset != -1) {
-            query.append(" offset ").append(offset);
-        }
-
         final Cursor cursor = database.rawQuery(query.toString(), arguments.toArray(new String[0]));
         final List<LogModel> logModels = new ArrayList<>();
 
         while (cursor.moveToNext()) {
             final LogModel log = new LogModel();
+            log.id = cursor.getLong(cursor.getColumnIndex(LogTable.ID));
             log.time = cursor.getString(cursor.getColumnIndex(LogTable.TIME));
             log.level = cursor.getString(cursor.getColumnIndex(LogTable.LEVEL));
             log.tag = cursor.getString(cursor.getColumnIndex(LogTable.TAG));
@@ -127,6 +164,10 @@ public final class LogRepository {
         }
 
         cursor.close();
+
+        if (isBackward) {
+            Collections.reverse(logModels);
+        }
         return logModels;
     }
 
@@ -134,14 +175,62 @@ public final class LogRepository {
         database.delete(REMOTE_LOGS_TABLE_NAME, null, null);
     }
 
+    public long getCount() {
+        return ringBuffer.getCount();
+    }
+
+    public int trim(int maxRows, long minCreatedAt, int maxChunk) {
+        return ringBuffer.trim(maxRows, minCreatedAt, maxChunk);
+    }
+
+    public int trimOldest(int count) {
+        return ringBuffer.deleteOldest(count);
+    }
+
     public void createLogsTable(SQLiteDatabase db) {
         final String query = "create table " + REMOTE_LOGS_TABLE_NAME + " (" +
                 LogTable.ID + " integer primary key autoincrement, " +
                 LogTable.TIME + " text," +
                 LogTable.LEVEL + " text," +
                 LogTable.TAG + " text," +
-                LogTable.MESSAGE + " text);";
+                LogTable.MESSAGE + " text," +
+                LogTable.CREATED_AT + " integer);";
         db.execSQL(query);
+
+        db.execSQL("create virtual table " + REMOTE_LOGS_FTS_TABLE_NAME + " using fts4(" +
+                "content=\"" + REMOTE_LOGS_TABLE_NAME + "\", " +
+                LogTable.TAG + ", " +
+                LogTable.MESSAGE + ");");
+
+        db.execSQL("create trigger " + REMOTE_LOGS_TABLE_NAME + "_after_insert after insert on " +
+                REMOTE_LOGS_TABLE_NAME + " begin " +
+                "insert into " + REMOTE_LOGS_FTS_TABLE_NAME + " (docid, " + LogTable.TAG + ", " + LogTable.MESSAGE + ") " +
+                "values (new." + LogTable.ID + ", new." + LogTable.TAG + ", new." + LogTable.MESSAGE + "); end;");
+
+        db.execSQL("create trigger " + REMOTE_LOGS_TABLE_NAME + "_before_delete before delete on " +
+                REMOTE_LOGS_TABLE_NAME + " begin " +
+                "delete from " + REMOTE_LOGS_FTS_TABLE_NAME + " where docid = old." + LogTable.ID + "; end;");
+    }
+
+    private String toMatchQuery(String search) {
+        final StringBuilder matchQuery = new StringBuilder();
+
+        for (String token : LogFilter.tokenize(search)) {
+            if (matchQuery.length() != 0) {
+                matchQuery.append(' ');
+            }
+            matchQuery.append(token).append('*');
+        }
+
+        return matchQuery.length() == 0 ? null : matchQuery.toString();
+    }
+
+    private void bindText(SQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
     }
 
     private interface LogTable {
@@ -150,5 +239,6 @@ public final class LogRepository {
         String LEVEL = "level";
         String TAG = "tag";
         String MESSAGE = "message";
+        String CREATED_AT = "created_at";
     }
 }
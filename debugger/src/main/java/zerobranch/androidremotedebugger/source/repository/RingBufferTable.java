@@ -0,0 +1,86 @@
+/*
+ * Copyright 2020 Arman Sargsyan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zerobranch.androidremotedebugger.source.repository;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * Evicts the oldest rows of an append-only table by {@code _id} range.
+ * Rows are only ever removed from the head of the table, so the row count
+ * is {@code max(_id) - min(_id) + 1} and never needs a full scan.
+ */
+final class RingBufferTable {
+    private final SQLiteDatabase database;
+    private final String tableName;
+    private final String idColumn;
+    private final String createdAtColumn;
+
+    RingBufferTable(SQLiteDatabase database, String tableName, String idColumn, String createdAtColumn) {
+        this.database = database;
+        this.tableName = tableName;
+        this.idColumn = idColumn;
+        this.createdAtColumn = createdAtColumn;
+    }
+
+    long getCount() {
+        final Cursor cursor = database.rawQuery("select min(" + idColumn + "), max(" + idColumn + ") " +
+                "from " + tableName, null);
+        try {
+            if (!cursor.moveToFirst() || cursor.isNull(0)) {
+                return 0;
+            }
+            return cursor.getLong(1) - cursor.getLong(0) + 1;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    int trim(int maxRows, long minCreatedAt, int maxChunk) {
+        int deleted = 0;
+
+        if (maxRows > 0) {
+            final long excess = getCount() - maxRows;
+            if (excess > 0) {
+                deleted += deleteOldest((int) Math.min(excess, maxChunk));
+            }
+        }
+
+        if (minCreatedAt > 0) {
+            deleted += deleteOlderThan(minCreatedAt, maxChunk);
+        }
+
+        return deleted;
+    }
+
+    int deleteOldest(int count) {
+        return database.delete(tableName, idColumn + " < " +
+                "(select min(" + idColumn + ") from " + tableName + ") + " + count, null);
+    }
+
+    // created_at has no index, so only the rows of the next chunk are looked at: the first of them
+    // that is not expired ends the chunk, the insert time grows with the id
+    private int deleteOlderThan(long timestamp, int maxCount) {
+        final String chunkEnd = "(select min(" + idColumn + ") from " + tableName + ") + " + maxCount;
+        final String whereClause = idColumn + " < coalesce(" +
+                "(select " + idColumn + " from " + tableName +
+                " where " + idColumn + " < " + chunkEnd + " and " + createdAtColumn + " >= ?" +
+                " order by " + idColumn + " limit 1), " +
+                chunkEnd + ")";
+
+        return database.delete(tableName, whereClause, new String[]{String.valueOf(timestamp)});
+    }
+}
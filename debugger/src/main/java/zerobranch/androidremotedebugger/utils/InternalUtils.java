@@ -55,4 +55,13 @@ public final class InternalUtils {
             return false;
         }
     }
+
+    public static boolean isLong(String value) {
+        try {
+            Long.parseLong(value);
+            return true;
+        } catch (NumberFormatException ex) {
+            return false;
+        }
+    }
 }
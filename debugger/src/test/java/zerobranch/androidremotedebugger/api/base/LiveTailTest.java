@@ -0,0 +1,146 @@
+/*
+ * Copyright 2020 Arman Sargsyan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zerobranch.androidremotedebugger.api.base;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import zerobranch.androidremotedebugger.http.EventSink;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LiveTailTest {
+    private static final int PAGE_SIZE = 2;
+
+    private final List<Long> table = new ArrayList<>();
+    private final RecordingSink sink = new RecordingSink();
+
+    @Test
+    public void sendsStoredRowsOnePagePerCall() {
+        table.addAll(Arrays.asList(1L, 2L, 3L));
+        final TestTail tail = new TestTail(0);
+
+        assertTrue(tail.sendNext());
+        assertEquals(Arrays.asList("[1, 2]"), sink.sent);
+
+        assertFalse(tail.sendNext());
+        assertEquals(Arrays.asList("[1, 2]", "[3]"), sink.sent);
+    }
+
+    @Test
+    public void holdsLiveRowsUntilBacklogIsSentAndSkipsDuplicates() {
+        table.addAll(Arrays.asList(1L, 2L, 3L));
+        final TestTail tail = new TestTail(0);
+
+        tail.onAdded(Arrays.asList(3L));
+        table.add(4L);
+        tail.onAdded(Arrays.asList(4L));
+        assertTrue(sink.sent.isEmpty());
+
+        while (tail.sendNext()) { }
+
+        assertEquals(Arrays.asList("[1, 2]", "[3, 4]"), sink.sent);
+
+        tail.onAdded(Arrays.asList(4L, 5L));
+        assertEquals("[5]", sink.sent.get(sink.sent.size() - 1));
+    }
+
+    @Test
+    public void rereadsTableWhenTooManyLiveRowsWereHeld() {
+        final TestTail tail = new TestTail(0);
+
+        table.addAll(Arrays.asList(1L, 2L, 3L));
+        tail.onAdded(Arrays.asList(1L, 2L, 3L));
+
+        while (tail.sendNext()) { }
+
+        assertEquals(Arrays.asList("[1, 2]", "[3]"), sink.sent);
+    }
+
+    @Test
+    public void unsubscribesWhenSinkIsClosed() {
+        final TestTail tail = new TestTail(0);
+        sink.isClosed = true;
+
+        tail.onAdded(Arrays.asList(1L));
+
+        assertTrue(tail.isUnsubscribed);
+        assertFalse(tail.sendNext());
+    }
+
+    private final class TestTail extends LiveTail<Long> {
+        private boolean isUnsubscribed;
+
+        TestTail(long afterId) {
+            super(sink, "logs", afterId, PAGE_SIZE);
+        }
+
+        @Override
+        protected List<Long> getPage(long afterId) {
+            final List<Long> page = new ArrayList<>();
+            for (Long id : table) {
+                if (id > afterId && page.size() < PAGE_SIZE) {
+                    page.add(id);
+                }
+            }
+            return page;
+        }
+
+        @Override
+        protected boolean matches(Long item) {
+            return true;
+        }
+
+        @Override
+        protected long getId(Long item) {
+            return item;
+        }
+
+        @Override
+        protected String serialize(List<Long> items, boolean isShared) {
+            return items.toString();
+        }
+
+        @Override
+        public void unsubscribe() {
+            isUnsubscribed = true;
+        }
+    }
+
+    private static final class RecordingSink implements EventSink {
+        private final List<String> sent = new ArrayList<>();
+        private boolean isClosed;
+
+        @Override
+        public boolean send(String event, String data) {
+            sent.add(data);
+            return true;
+        }
+
+        @Override
+        public boolean isClosed() {
+            return isClosed;
+        }
+
+        @Override
+        public void setBacklog(Backlog backlog) { }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2020 Arman Sargsyan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zerobranch.androidremotedebugger.http;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import fi.iki.elonen.NanoHTTPD;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BoundedAsyncRunnerTest {
+    private static final long TIMEOUT_SECONDS = 5;
+
+    private final NanoHTTPD server = new NanoHTTPD(0) {
+    };
+    private final AtomicInteger rejectedCount = new AtomicInteger();
+    private final BoundedAsyncRunner runner = new BoundedAsyncRunner(1, 1, 2,
+            clientHandler -> rejectedCount.incrementAndGet());
+    private final CountDownLatch streamsClosed = new CountDownLatch(1);
+
+    @After
+    public void tearDown() {
+        streamsClosed.countDown();
+        runner.shutdown();
+    }
+
+    @Test
+    public void streamsDoNotTakeWorkersOfRequests() throws InterruptedException {
+        final CountDownLatch streamsStarted = new CountDownLatch(2);
+        runner.exec(new StreamHandler(streamsStarted));
+        runner.exec(new StreamHandler(streamsStarted));
+        assertTrue(streamsStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        final CountDownLatch requestServed = new CountDownLatch(1);
+        runner.exec(new RequestHandler(requestServed));
+
+        assertTrue(requestServed.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(2, runner.getStreamCount());
+        assertEquals(1, runner.getPoolSize());
+        assertEquals(0, rejectedCount.get());
+    }
+
+    @Test
+    public void refusesStreamsOverTheLimit() throws InterruptedException {
+        final CountDownLatch streamsStarted = new CountDownLatch(2);
+        runner.exec(new StreamHandler(streamsStarted));
+        runner.exec(new StreamHandler(streamsStarted));
+        assertTrue(streamsStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        final StreamHandler refusedStream = new StreamHandler(new CountDownLatch(1));
+        runner.exec(refusedStream);
+
+        assertTrue(refusedStream.finished.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertFalse(refusedStream.isStreaming);
+        assertEquals(2, runner.getStreamCount());
+    }
+
+    @Test
+    public void closedStreamGivesItsWorkerBack() throws InterruptedException {
+        final CountDownLatch streamStarted = new CountDownLatch(1);
+        final StreamHandler stream = new StreamHandler(streamStarted);
+        runner.exec(stream);
+        assertTrue(streamStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        streamsClosed.countDown();
+
+        assertTrue(stream.finished.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(0, runner.getStreamCount());
+    }
+
+    private class RequestHandler extends NanoHTTPD.ClientHandler {
+        private final CountDownLatch served;
+
+        RequestHandler(CountDownLatch served) {
+            server.super(null, null);
+            this.served = served;
+        }
+
+        @Override
+        public void run() {
+            served.countDown();
+            runner.closed(this);
+        }
+    }
+
+    // holds its worker like an open page until the test closes the streams
+    private class StreamHandler extends NanoHTTPD.ClientHandler {
+        private final CountDownLatch started;
+        private final CountDownLatch finished = new CountDownLatch(1);
+        private volatile boolean isStreaming;
+
+        StreamHandler(CountDownLatch started) {
+            server.super(null, null);
+            this.started = started;
+        }
+
+        @Override
+        public void run() {
+            try {
+                isStreaming = runner.startStreaming();
+                if (isStreaming) {
+                    started.countDown();
+                    streamsClosed.await();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } finally {
+                runner.closed(this);
+                finished.countDown();
+            }
+        }
+    }
+}
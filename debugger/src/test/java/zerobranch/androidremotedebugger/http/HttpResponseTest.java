@@ -0,0 +1,128 @@
+/*
+ * Copyright 2020 Arman Sargsyan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zerobranch.androidremotedebugger.http;
+
+import com.google.gson.Gson;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import fi.iki.elonen.NanoHTTPD;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okio.Buffer;
+import okio.GzipSource;
+import okio.Okio;
+import zerobranch.androidremotedebugger.source.models.LogModel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class HttpResponseTest {
+    private static final String[] LEVELS = {"V", "D", "I", "W", "E"};
+    private static final String[] TAGS = {"MainActivity", "OkHttp", "SyncService", "Database", "Auth"};
+    private static final String[] WORDS = {"request", "finished", "user", "session", "cache", "loaded",
+            "retrying", "token", "refresh", "item", "list", "updated", "failed", "timeout"};
+
+    private final OkHttpClient client = new OkHttpClient();
+    private String json;
+    private NanoHTTPD server;
+
+    @Before
+    public void setUp() throws IOException {
+        json = new Gson().toJson(createLogs(1000));
+        server = new NanoHTTPD("127.0.0.1", 0) {
+            @Override
+            public Response serve(IHTTPSession session) {
+                return HttpResponse.newJsonResponse(json);
+            }
+        };
+        server.start(NanoHTTPD.SOCKET_READ_TIMEOUT, true);
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    public void gzipsJsonWhenAccepted() throws IOException {
+        byte[] plain = get("identity", null);
+        byte[] gzipped = get("gzip", "gzip");
+
+        assertEquals(json, new String(plain, "UTF-8"));
+        assertEquals(json, gunzip(gzipped));
+        // a page of 1000 logs repeats its keys, levels and tags on every row
+        assertTrue("1000 logs take " + plain.length + " bytes, " + gzipped.length + " gzipped",
+                gzipped.length * 4 < plain.length);
+    }
+
+    private byte[] get(String acceptEncoding, String expectedContentEncoding) throws IOException {
+        // an explicit Accept-Encoding keeps OkHttp from decoding the body, so it arrives as sent
+        Request request = new Request.Builder()
+                .url("http://127.0.0.1:" + server.getListeningPort() + "/logs")
+                .header("Accept-Encoding", acceptEncoding)
+                .build();
+
+        try (Response response = client.newCall(request).execute()) {
+            assertEquals(HttpResponse.MIME_JSON, response.header("Content-Type"));
+            assertEquals("no-store", response.header("Cache-Control"));
+            if (expectedContentEncoding == null) {
+                assertNull(response.header("Content-Encoding"));
+            } else {
+                assertEquals(expectedContentEncoding, response.header("Content-Encoding"));
+            }
+            return response.body().bytes();
+        }
+    }
+
+    private String gunzip(byte[] data) throws IOException {
+        Buffer buffer = new Buffer();
+        try (GzipSource source = new GzipSource(new Buffer().write(data))) {
+            Okio.buffer(source).readAll(buffer);
+        }
+        return buffer.readUtf8();
+    }
+
+    private List<LogModel> createLogs(int count) {
+        Random random = new Random(42);
+        List<LogModel> logs = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            StringBuilder message = new StringBuilder();
+            for (int j = 0, words = 4 + random.nextInt(8); j < words; j++) {
+                message.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+            }
+            message.append(random.nextInt(100000));
+
+            LogModel log = new LogModel();
+            log.id = i + 1;
+            log.time = String.format("10-18 17:%02d:%02d.%03d", i / 600 % 60, i / 10 % 60, random.nextInt(1000));
+            log.level = LEVELS[random.nextInt(LEVELS.length)];
+            log.tag = TAGS[random.nextInt(TAGS.length)];
+            log.message = message.toString();
+            logs.add(log);
+        }
+        return logs;
+    }
+}
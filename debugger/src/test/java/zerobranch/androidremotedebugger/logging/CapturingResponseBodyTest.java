@@ -0,0 +1,101 @@
+/*
+ * Copyright 2020 Arman Sargsyan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zerobranch.androidremotedebugger.logging;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CapturingResponseBodyTest {
+    private final List<String> reports = new ArrayList<>();
+
+    @Test
+    public void passesBodyThroughAndCapturesOnlyTheLimit() throws IOException {
+        ResponseBody body = capturing(ResponseBody.create("0123456789", null), 4);
+
+        assertEquals("0123456789", body.string());
+        assertEquals(1, reports.size());
+        assertEquals("0123:10", reports.get(0));
+    }
+
+    @Test
+    public void capturesWholeBodyBelowTheLimit() throws IOException {
+        ResponseBody body = capturing(ResponseBody.create("abc", null), 4);
+
+        assertEquals("abc", body.string());
+        assertEquals("abc:3", reports.get(0));
+    }
+
+    @Test
+    public void reportsOnlyWhatWasReadWhenClosedEarly() throws IOException {
+        ResponseBody body = capturing(ResponseBody.create("0123456789", null), 100);
+
+        BufferedSource source = body.source();
+        source.require(1);
+        long read = source.getBuffer().size();
+        assertTrue(reports.isEmpty());
+
+        body.close();
+        body.close();
+
+        assertEquals(1, reports.size());
+        assertEquals(read, Long.parseLong(reports.get(0).split(":")[1]));
+    }
+
+    @Test
+    public void reportsOnceWhenReadFails() {
+        Buffer data = new Buffer().writeUtf8("abc");
+        ForwardingSource failing = new ForwardingSource(data) {
+            @Override
+            public long read(Buffer sink, long byteCount) throws IOException {
+                if (data.exhausted()) {
+                    throw new IOException("reset");
+                }
+                return super.read(sink, byteCount);
+            }
+        };
+        ResponseBody body = capturing(ResponseBody.create(Okio.buffer(failing), (MediaType) null, -1), 100);
+
+        try {
+            body.string();
+            fail();
+        } catch (IOException expected) {
+            // the connection dropped in the middle of the body
+        }
+        body.close();
+
+        assertEquals(1, reports.size());
+        assertEquals("abc:3", reports.get(0));
+    }
+
+    private ResponseBody capturing(ResponseBody body, long maxCaptureSize) {
+        return new CapturingResponseBody(body, maxCaptureSize,
+            (captured, byteCount) -> reports.add(captured.readUtf8() + ":" + byteCount));
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2020 Arman Sargsyan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zerobranch.androidremotedebugger.logging;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.ByteString;
+import okio.Okio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CapturingSinkTest {
+
+    @Test
+    public void capturesWholeBodyUpToTheLimit() throws IOException {
+        CapturingSink capturingSink = write("abcd", 4);
+
+        assertFalse(capturingSink.isTruncated());
+        assertEquals(4, capturingSink.getByteCount());
+        assertEquals("abcd", capturingSink.getCaptured().readUtf8());
+    }
+
+    @Test
+    public void countsAndHashesEverythingPastTheLimit() throws IOException {
+        String body = "0123456789";
+        CapturingSink capturingSink = write(body, 4);
+
+        assertTrue(capturingSink.isTruncated());
+        assertEquals(10, capturingSink.getByteCount());
+        assertEquals("0123", capturingSink.getCaptured().readUtf8());
+        assertEquals(ByteString.encodeUtf8(body).sha256().hex(), capturingSink.getSha256());
+    }
+
+    @Test
+    public void keepsOnlyTheLimitAcrossSeveralWrites() throws IOException {
+        CapturingSink capturingSink = new CapturingSink(5);
+        capturingSink.write(new Buffer().writeUtf8("abc"), 3);
+        capturingSink.write(new Buffer().writeUtf8("def"), 3);
+        capturingSink.write(new Buffer().writeUtf8("ghi"), 3);
+
+        assertEquals(9, capturingSink.getByteCount());
+        assertEquals("abcde", capturingSink.getCaptured().readUtf8());
+    }
+
+    private CapturingSink write(String body, long maxCaptureSize) throws IOException {
+        CapturingSink capturingSink = new CapturingSink(maxCaptureSize);
+        BufferedSink sink = Okio.buffer(capturingSink);
+        sink.writeUtf8(body);
+        sink.flush();
+        return capturingSink;
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2020 Arman Sargsyan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zerobranch.androidremotedebugger.logging;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import zerobranch.androidremotedebugger.source.models.httplog.HttpLogTimings;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class NetLoggingEventListenerTest {
+    private static final long DELAY_MS = 20;
+
+    private final Request request = new Request.Builder().url("http://debugger.test/").build();
+    private final Call call = new OkHttpClient().newCall(request);
+    private final Response response = new Response.Builder()
+            .request(request)
+            .protocol(Protocol.HTTP_1_1)
+            .code(200)
+            .message("OK")
+            .build();
+    private final InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), 80);
+    private final NetLoggingEventListener listener = new NetLoggingEventListener();
+
+    @Test
+    public void reportsEachPhaseThatEndedInCallOrder() throws InterruptedException {
+        listener.callStart(call);
+        assertSame(listener, NetLoggingEventListener.get(call));
+
+        listener.dnsStart(call, "debugger.test");
+        Thread.sleep(DELAY_MS);
+        listener.dnsEnd(call, "debugger.test", Collections.singletonList(address.getAddress()));
+        listener.connectStart(call, address, Proxy.NO_PROXY);
+        listener.connectEnd(call, address, Proxy.NO_PROXY, Protocol.HTTP_1_1);
+        sendRequestHeaders();
+        Thread.sleep(DELAY_MS);
+        listener.responseHeadersStart(call);
+        listener.responseHeadersEnd(call, response);
+        listener.responseBodyStart(call);
+        // the body has not been read yet, so its phase is left out
+
+        HttpLogTimings timings = assertPhases("dns", "connect", "request headers", "wait", "response headers");
+        assertTrue(getPhase(timings, "dns").durationMs >= DELAY_MS);
+        assertTrue(getPhase(timings, "wait").durationMs >= DELAY_MS);
+        assertTrue(getPhase(timings, "wait").startMs >= DELAY_MS);
+        assertTrue(timings.totalMs >= 2 * DELAY_MS);
+
+        listener.responseBodyEnd(call, 0);
+        listener.callEnd(call);
+
+        assertPhases("dns", "connect", "request headers", "wait", "response headers", "response body");
+        assertNull(NetLoggingEventListener.get(call));
+    }
+
+    @Test
+    public void waitStartsAfterTheRequestBody() throws InterruptedException {
+        listener.callStart(call);
+        sendRequestHeaders();
+        listener.requestBodyStart(call);
+        Thread.sleep(DELAY_MS);
+        listener.requestBodyEnd(call, 1);
+        listener.responseHeadersStart(call);
+        listener.callFailed(call, new IOException("reset"));
+
+        HttpLogTimings timings = assertPhases("request headers", "request body", "wait");
+        assertTrue(getPhase(timings, "request body").durationMs >= DELAY_MS);
+        // measured from the end of the body, not from the end of the headers
+        assertTrue(getPhase(timings, "wait").durationMs < DELAY_MS);
+        assertNull(NetLoggingEventListener.get(call));
+    }
+
+    private void sendRequestHeaders() {
+        listener.requestHeadersStart(call);
+        listener.requestHeadersEnd(call, request);
+    }
+
+    // the phases reported so far, in the order they are listed on the page
+    private HttpLogTimings assertPhases(String... names) {
+        HttpLogTimings timings = listener.getTimings();
+        List<String> phaseNames = new ArrayList<>();
+        for (HttpLogTimings.Phase phase : timings.phases) {
+            phaseNames.add(phase.name);
+        }
+
+        assertEquals(Arrays.asList(names), phaseNames);
+        return timings;
+    }
+
+    private HttpLogTimings.Phase getPhase(HttpLogTimings timings, String name) {
+        for (HttpLogTimings.Phase phase : timings.phases) {
+            if (phase.name.equals(name)) {
+                return phase;
+            }
+        }
+        throw new AssertionError(name);
+    }
+}
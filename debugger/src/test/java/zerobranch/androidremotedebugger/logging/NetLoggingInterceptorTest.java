@@ -0,0 +1,221 @@
+/*
+ * Copyright 2020 Arman Sargsyan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zerobranch.androidremotedebugger.logging;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.Dns;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.Okio;
+import zerobranch.androidremotedebugger.source.models.httplog.HttpLogModel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class NetLoggingInterceptorTest {
+    // a reserved name the system resolver cannot answer, so only the counting Dns can,
+    // and an InetAddress lookup of it in the interceptor would fail the call
+    private static final String HOST = "debugger.test";
+    private static final String LOOPBACK = InetAddress.getLoopbackAddress().getHostAddress();
+    private static final int MAX_CONTENT_LENGTH = 200000;
+    private static final String TRUNCATED_MARKER = "\n\n... truncated, ";
+
+    private final MockWebServer server = new MockWebServer();
+    private final CountingDns dns = new CountingDns();
+    private final List<HttpLogModel> logs = Collections.synchronizedList(new ArrayList<>());
+
+    @Before
+    public void setUp() throws IOException {
+        try {
+            InetAddress.getByName(HOST);
+            fail(HOST + " must not resolve outside of the test Dns");
+        } catch (UnknownHostException expected) {
+            // the address can only come from the connection OkHttp made
+        }
+        server.start(InetAddress.getLoopbackAddress(), 0);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void applicationInterceptorDoesNotResolveHost() throws IOException {
+        OkHttpClient client = new OkHttpClient.Builder()
+                .dns(dns)
+                .eventListenerFactory(NetLoggingEventListener.FACTORY)
+                .addInterceptor(new TestInterceptor(logs::add))
+                .build();
+
+        assertCallsResolveOnlyOnce(client);
+        // the request is logged before the call is connected, so only the response has the address
+        assertNull(logs.get(0).ip);
+    }
+
+    @Test
+    public void networkInterceptorDoesNotResolveHost() throws IOException {
+        OkHttpClient client = new OkHttpClient.Builder()
+                .dns(dns)
+                .addNetworkInterceptor(new TestInterceptor(logs::add))
+                .build();
+
+        assertCallsResolveOnlyOnce(client);
+        // read from chain.connection() before the request is logged
+        assertEquals(LOOPBACK, logs.get(0).ip);
+        assertEquals(LOOPBACK, logs.get(2).ip);
+    }
+
+    @Test
+    public void marksResponseBodyCutAtTheLimit() throws IOException {
+        String body = getLongBody();
+        server.enqueue(new MockResponse().setBody(body));
+
+        HttpLogModel response = executeLogged(server.url("/path"));
+
+        assertEquals(body.substring(0, MAX_CONTENT_LENGTH) + TRUNCATED_MARKER + body.length() + " bytes received",
+                response.body);
+        assertEquals(Long.valueOf(body.length()), response.bodySizeBytes);
+    }
+
+    // the compressed body fits into the capture, only its inflated text is over the limit
+    @Test
+    public void marksGzippedResponseBodyCutAtTheLimit() throws IOException {
+        String body = getLongBody();
+        Buffer gzipped = gzip(body);
+        long gzippedSize = gzipped.size();
+        server.enqueue(new MockResponse().setBody(gzipped).setHeader("Content-Encoding", "gzip"));
+
+        HttpLogModel response = executeLogged(server.url("/path"));
+
+        assertTrue(gzippedSize < MAX_CONTENT_LENGTH);
+        assertEquals(body.substring(0, MAX_CONTENT_LENGTH) + TRUNCATED_MARKER + gzippedSize + " bytes received",
+                response.body);
+    }
+
+    @Test
+    public void keepsResponseBodyAtTheLimitWhole() throws IOException {
+        String body = getLongBody().substring(0, MAX_CONTENT_LENGTH);
+        server.enqueue(new MockResponse().setBody(gzip(body)).setHeader("Content-Encoding", "gzip"));
+
+        assertEquals(body, executeLogged(server.url("/path")).body);
+    }
+
+    private HttpLogModel executeLogged(HttpUrl url) throws IOException {
+        OkHttpClient client = new OkHttpClient.Builder()
+                .addNetworkInterceptor(new TestInterceptor(logs::add))
+                .build();
+
+        try (Response response = client.newCall(new Request.Builder().url(url).build()).execute()) {
+            response.body().string();
+        }
+        assertEquals(2, logs.size());
+        return logs.get(1);
+    }
+
+    private String getLongBody() {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; body.length() < MAX_CONTENT_LENGTH * 3 / 2; i++) {
+            body.append("line ").append(i).append('\n');
+        }
+        return body.toString();
+    }
+
+    private Buffer gzip(String text) throws IOException {
+        Buffer buffer = new Buffer();
+        try (BufferedSink sink = Okio.buffer(new GzipSink(buffer))) {
+            sink.writeUtf8(text);
+        }
+        return buffer;
+    }
+
+    private void assertCallsResolveOnlyOnce(OkHttpClient client) throws IOException {
+        execute(client);
+        // the only lookup is the one OkHttp makes to connect
+        assertEquals(1, dns.lookups.get());
+        assertLogged(2);
+
+        // the second call reuses the pooled connection, so nothing may resolve the host again
+        execute(client);
+        assertEquals(1, dns.lookups.get());
+        assertLogged(4);
+    }
+
+    private void execute(OkHttpClient client) throws IOException {
+        server.enqueue(new MockResponse().setBody("ok"));
+        HttpUrl url = server.url("/path").newBuilder().host(HOST).build();
+        try (Response response = client.newCall(new Request.Builder().url(url).build()).execute()) {
+            assertEquals("ok", response.body().string());
+        }
+    }
+
+    private void assertLogged(int count) {
+        assertEquals(count, logs.size());
+        // the response is logged with the address of the connection it was sent over
+        assertEquals(LOOPBACK, logs.get(count - 1).ip);
+    }
+
+    private static class CountingDns implements Dns {
+        final AtomicInteger lookups = new AtomicInteger();
+
+        @NotNull
+        @Override
+        public List<InetAddress> lookup(@NotNull String hostname) throws UnknownHostException {
+            lookups.incrementAndGet();
+            if (!HOST.equals(hostname)) {
+                throw new UnknownHostException(hostname);
+            }
+            return Collections.singletonList(InetAddress.getLoopbackAddress());
+        }
+    }
+
+    private static class TestInterceptor extends NetLoggingInterceptor {
+        TestInterceptor(HttpLogger httpLogger) {
+            super(httpLogger);
+        }
+
+        @Override
+        boolean isEnabled() {
+            return true;
+        }
+
+        @Override
+        void addHttpLog(HttpLogModel logModel) {
+            // logs are collected through the HttpLogger instead of the database
+        }
+    }
+}
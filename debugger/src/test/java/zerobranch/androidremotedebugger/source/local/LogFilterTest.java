@@ -0,0 +1,46 @@
+/*
+ * Copyright 2020 Arman Sargsyan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zerobranch.androidremotedebugger.source.local;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+
+public class LogFilterTest {
+
+    @Test
+    public void tokenizeSplitsOnUnderscoreAndPunctuation() {
+        assertEquals(Arrays.asList("foo", "bar", "baz", "42"), LogFilter.tokenize("foo_bar-baz:42"));
+    }
+
+    @Test
+    public void tokenizeFoldsOnlyAsciiCase() {
+        assertEquals(Arrays.asList("hello", "Äpfel"), LogFilter.tokenize("HeLLo ÄPFEL"));
+    }
+
+    @Test
+    public void tokenizeKeepsNonAsciiCharactersInsideWords() {
+        assertEquals(Collections.singletonList("naïve—word"), LogFilter.tokenize("naïve—word"));
+    }
+
+    @Test
+    public void tokenizeReturnsNothingForSeparatorsOnly() {
+        assertEquals(Collections.emptyList(), LogFilter.tokenize(" _-.,; "));
+    }
+}
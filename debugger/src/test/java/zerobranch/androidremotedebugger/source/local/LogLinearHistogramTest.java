@@ -0,0 +1,85 @@
+/*
+ * Copyright 2020 Arman Sargsyan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zerobranch.androidremotedebugger.source.local;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LogLinearHistogramTest {
+    @Test
+    public void emptyHistogramReportsZero() {
+        LogLinearHistogram histogram = new LogLinearHistogram();
+
+        assertEquals(0, histogram.getTotalCount());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+    }
+
+    @Test
+    public void smallValuesAreExact() {
+        LogLinearHistogram histogram = record(1, 2, 3, 4, 5, 6, 7, 8, 9, 10);
+
+        assertEquals(10, histogram.getTotalCount());
+        assertEquals(1, histogram.getValueAtPercentile(0));
+        assertEquals(5, histogram.getValueAtPercentile(50));
+        assertEquals(9, histogram.getValueAtPercentile(90));
+        assertEquals(10, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void reportsUpperBoundOfTheBucket() {
+        LogLinearHistogram histogram = record(1000, 5000);
+
+        // 1000 lies in the bucket [992, 1023]
+        assertEquals(1023, histogram.getValueAtPercentile(50));
+        // the upper bound of the last bucket is clamped to the largest recorded value
+        assertEquals(5000, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void everyValueIsKnownToWithinOneSixteenth() {
+        for (int bit = 0; bit < 62; bit++) {
+            // both ends of each power of two and a value in between
+            assertWithinOneSixteenth((1L << bit) - 1);
+            assertWithinOneSixteenth(1L << bit);
+            assertWithinOneSixteenth((1L << bit) + (1L << bit) / 3);
+        }
+    }
+
+    @Test
+    public void recordsWholeRangeOfLong() {
+        LogLinearHistogram histogram = record(-5, Long.MAX_VALUE);
+
+        assertEquals(0, histogram.getValueAtPercentile(50));
+        assertEquals(Long.MAX_VALUE, histogram.getValueAtPercentile(100));
+    }
+
+    // a larger value recorded after it keeps the bucket of the value from being clamped
+    private void assertWithinOneSixteenth(long value) {
+        long reported = record(value, Long.MAX_VALUE).getValueAtPercentile(50);
+
+        assertTrue(value + " reported as " + reported, reported >= value && reported - value <= value / 16);
+    }
+
+    private LogLinearHistogram record(long... values) {
+        LogLinearHistogram histogram = new LogLinearHistogram();
+        for (long value : values) {
+            histogram.record(value);
+        }
+        return histogram;
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2020 Arman Sargsyan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zerobranch.androidremotedebugger.source.local;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class UrlTemplateTest {
+    private static final String ORIGIN = "https://example.com";
+
+    @Test
+    public void replacesResourceSegments() {
+        assertTemplatePath("/users/{id}/orders", "/users/42/orders");
+        assertTemplatePath("/items/{uuid}", "/items/123e4567-E89B-12d3-a456-426614174000");
+        assertTemplatePath("/blobs/{hash}", "/blobs/0123456789abcdef0123");
+        assertTemplatePath("/confirm/{token}", "/confirm/aB3_dEfGhIjKlMnOpQrStUvWx-Yz");
+    }
+
+    @Test
+    public void keepsNamedSegments() {
+        assertTemplatePath("/api/v2/users", "/api/v2/users");
+        assertTemplatePath("/cafe", "/cafe");
+        assertTemplatePath("/abcdefghijklmnopqrstuvwxyz", "/abcdefghijklmnopqrstuvwxyz");
+    }
+
+    @Test
+    public void dropsQueryAndKeepsHost() {
+        UrlTemplate template = UrlTemplate.of("http://API.example.com:8080/users/7?page=2#top");
+
+        assertEquals("api.example.com", template.getHost());
+        assertEquals("/users/{id}", template.getPath());
+        assertTemplatePath("/", "");
+    }
+
+    @Test
+    public void keepsUnparsableUrlAsPath() {
+        UrlTemplate template = UrlTemplate.of("not a url");
+
+        assertEquals("", template.getHost());
+        assertEquals("not a url", template.getPath());
+        assertEquals("", UrlTemplate.of(null).getPath());
+    }
+
+    // every path is requested from the same origin, so only the path can make two calls differ
+    private void assertTemplatePath(String expected, String path) {
+        UrlTemplate template = UrlTemplate.of(ORIGIN + path);
+
+        assertEquals("example.com", template.getHost());
+        assertEquals(expected, template.getPath());
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright 2020 Arman Sargsyan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zerobranch.androidremotedebugger.source.managers;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import zerobranch.androidremotedebugger.settings.BackpressurePolicy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BatchQueueTest {
+    private static final long FLUSH_INTERVAL = 50;
+    private static final long TIMEOUT = 5000;
+
+    private final List<List<Integer>> batches = Collections.synchronizedList(new ArrayList<>());
+    private final ManualWriterThread manualThread = new ManualWriterThread();
+    private final ExecutorWriterThread executorThread = new ExecutorWriterThread();
+
+    @After
+    public void tearDown() {
+        executorThread.executor.shutdownNow();
+    }
+
+    @Test
+    public void writesFullBatchesInOneFlush() {
+        BatchQueue<Integer> queue = newQueue(manualThread, 100, BackpressurePolicy.BLOCK);
+        for (int i = 1; i <= 25; i++) {
+            queue.put(i);
+        }
+
+        // the delayed flush of the first item and one flush however often the batch size is reached
+        assertEquals(2, manualThread.tasks.size());
+        assertEquals(1, manualThread.delays.size());
+        manualThread.runTasks();
+
+        assertEquals(Arrays.asList(10, 10, 5), getBatchSizes());
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void flushesPartialBatchAfterInterval() {
+        BatchQueue<Integer> queue = newQueue(manualThread, 100, BackpressurePolicy.BLOCK);
+        queue.put(1);
+        queue.put(2);
+
+        assertEquals(Collections.singletonList(FLUSH_INTERVAL), manualThread.delays);
+        manualThread.runTasks();
+
+        assertEquals(Collections.singletonList(Arrays.asList(1, 2)), batches);
+    }
+
+    @Test
+    public void dropOldestKeepsNewestItems() {
+        BatchQueue<Integer> queue = newQueue(manualThread, 3, BackpressurePolicy.DROP_OLDEST);
+        for (int i = 1; i <= 5; i++) {
+            queue.put(i);
+        }
+
+        assertEquals(2, queue.getDroppedCount());
+        manualThread.runTasks();
+        assertEquals(Collections.singletonList(Arrays.asList(3, 4, 5)), batches);
+    }
+
+    @Test
+    public void dropNewKeepsOldestItems() {
+        BatchQueue<Integer> queue = newQueue(manualThread, 3, BackpressurePolicy.DROP_NEW);
+        for (int i = 1; i <= 5; i++) {
+            queue.put(i);
+        }
+
+        assertEquals(2, queue.getDroppedCount());
+        manualThread.runTasks();
+        assertEquals(Collections.singletonList(Arrays.asList(1, 2, 3)), batches);
+    }
+
+    @Test
+    public void blockWaitsForWriterAndLosesNothing() throws InterruptedException {
+        final CountDownLatch writerRelease = new CountDownLatch(1);
+        final BatchQueue<Integer> queue = new BatchQueue<>(executorThread, 2, 2, FLUSH_INTERVAL,
+                BackpressurePolicy.BLOCK, batch -> {
+                    awaitQuietly(writerRelease);
+                    batches.add(new ArrayList<>(batch));
+                });
+
+        Thread producer = new Thread(() -> {
+            for (int i = 1; i <= 6; i++) {
+                queue.put(i);
+            }
+        });
+        producer.start();
+
+        // the writer is stuck on the first batch, so the producer has to wait for room
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (producer.getState() != Thread.State.WAITING && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(Thread.State.WAITING, producer.getState());
+
+        writerRelease.countDown();
+        producer.join(TIMEOUT);
+
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6), awaitWritten(6));
+        assertEquals(0, queue.getDroppedCount());
+    }
+
+    @Test
+    public void blockOnWriterThreadFlushesInsteadOfWaiting() throws Exception {
+        final BatchQueue<Integer> queue = newQueue(executorThread, 2, BackpressurePolicy.BLOCK);
+
+        // waiting for room on the writer thread would wait for itself forever
+        executorThread.executor.submit(() -> {
+            for (int i = 1; i <= 5; i++) {
+                queue.put(i);
+            }
+        }).get(TIMEOUT, TimeUnit.MILLISECONDS);
+
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5), awaitWritten(5));
+        assertEquals(0, queue.getDroppedCount());
+    }
+
+    private BatchQueue<Integer> newQueue(BatchQueue.WriterThread writerThread,
+                                         int capacity,
+                                         BackpressurePolicy backpressurePolicy) {
+        return new BatchQueue<>(writerThread, capacity, 10, FLUSH_INTERVAL, backpressurePolicy,
+                batch -> batches.add(new ArrayList<>(batch)));
+    }
+
+    private List<Integer> getBatchSizes() {
+        List<Integer> sizes = new ArrayList<>();
+        for (List<Integer> batch : batches) {
+            sizes.add(batch.size());
+        }
+        return sizes;
+    }
+
+    private List<Integer> awaitWritten(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (true) {
+            List<Integer> written = new ArrayList<>();
+            synchronized (batches) {
+                for (List<Integer> batch : batches) {
+                    written.addAll(batch);
+                }
+            }
+
+            if (written.size() >= count || System.currentTimeMillis() > deadline) {
+                return written;
+            }
+            Thread.sleep(5);
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Keeps posted tasks until the test runs them on its own thread.
+     */
+    private static final class ManualWriterThread implements BatchQueue.WriterThread {
+        final List<Runnable> tasks = new ArrayList<>();
+        final List<Long> delays = new ArrayList<>();
+        private boolean isRunning;
+
+        @Override
+        public void post(Runnable task) {
+            tasks.add(task);
+        }
+
+        @Override
+        public void postDelayed(Runnable task, long delayMillis) {
+            tasks.add(task);
+            delays.add(delayMillis);
+        }
+
+        @Override
+        public void removeCallbacks(Runnable task) {
+            tasks.removeAll(Collections.singleton(task));
+        }
+
+        @Override
+        public boolean isCurrentThread() {
+            return isRunning;
+        }
+
+        void runTasks() {
+            isRunning = true;
+            while (!tasks.isEmpty()) {
+                tasks.remove(0).run();
+            }
+            isRunning = false;
+        }
+    }
+
+    private static final class ExecutorWriterThread implements BatchQueue.WriterThread {
+        private volatile Thread thread;
+        final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            thread = new Thread(runnable, "BatchQueueTest writer");
+            return thread;
+        });
+
+        @Override
+        public void post(Runnable task) {
+            executor.execute(task);
+        }
+
+        @Override
+        public void postDelayed(Runnable task, long delayMillis) {
+            executor.schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void removeCallbacks(Runnable task) {
+            // a flush that runs again finds the queue empty
+        }
+
+        @Override
+        public boolean isCurrentThread() {
+            return Thread.currentThread() == thread;
+        }
+    }
+}
@@ -18,6 +18,7 @@ package zerobranch.androidremotedebugger;
 import android.content.Context;
 
 import zerobranch.androidremotedebugger.logging.Logger;
+import zerobranch.androidremotedebugger.settings.BackpressurePolicy;
 
 public final class AndroidRemoteDebugger {
 
@@ -78,6 +79,62 @@ public final class AndroidRemoteDebugger {
             return this;
         }
 
+        public Builder logBatchSize(int logBatchSize) {
+            return this;
+        }
+
+        public Builder logFlushInterval(long logFlushInterval) {
+            return this;
+        }
+
+        public Builder httpLogQueueCapacity(int httpLogQueueCapacity) {
+            return this;
+        }
+
+        public Builder httpLogBackpressure(BackpressurePolicy backpressurePolicy) {
+            return this;
+        }
+
+        public Builder retentionMaxRows(int retentionMaxRows) {
+            return this;
+        }
+
+        public Builder retentionMaxBytes(long retentionMaxBytes) {
+            return this;
+        }
+
+        public Builder retentionMaxAge(long retentionMaxAge) {
+            return this;
+        }
+
+        public Builder serverPoolSize(int serverPoolSize) {
+            return this;
+        }
+
+        public Builder serverQueueLimit(int serverQueueLimit) {
+            return this;
+        }
+
+        public Builder serverStreamLimit(int serverStreamLimit) {
+            return this;
+        }
+
+        public Builder assetCacheMaxBytes(long assetCacheMaxBytes) {
+            return this;
+        }
+
+        public Builder preloadAssets() {
+            return this;
+        }
+
+        public Builder disableAssetPreCompression() {
+            return this;
+        }
+
+        public Builder databaseQueryTimeout(long databaseQueryTimeout) {
+            return this;
+        }
+
         public AndroidRemoteDebugger build() {
             return new AndroidRemoteDebugger(this);
         }
@@ -20,6 +20,7 @@ import java.util.List;
 public class HttpLogModel {
     public long id;
     public String time;
+    public long timestamp;
     public String queryId;
     public String url;
     public String method;
@@ -32,8 +33,11 @@ public class HttpLogModel {
     public String requestContentType;
     public String duration;
     public String bodySize;
+    public Long durationMs;
+    public Long bodySizeBytes;
     public String body;
     public String errorMessage;
     public QueryType queryType;
     public List<String> headers;
+    public HttpLogTimings timings;
 }